@@ -0,0 +1,23 @@
+#!/bin/sh
+# Compiles the POS and produces an AppCDS archive from one startup run.
+# Needs JDK 13+ and a display (set DISPLAY to an Xvfb server on headless build machines).
+#
+# Run with the archive:
+#   java -XX:SharedArchiveFile=out/pos.jsa -cp out/production/POS POS.Main
+set -e
+cd "$(dirname "$0")/.."
+
+OUT=out/production/POS
+ARCHIVE=out/pos.jsa
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -encoding UTF-8 -d "$OUT" src/POS/*.java
+cp src/POS/*.jfc "$OUT/POS/"
+
+# Training run: starts the app, exits once the product grid is interactive,
+# and dumps every class loaded on the way into the archive
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -Dpos.startup.exit=true -cp "$OUT" POS.Main
+
+echo "CDS archive written to $ARCHIVE"
+echo "Compare: java -cp $OUT POS.StartupBenchmark 10 && java -cp $OUT POS.StartupBenchmark 10 $ARCHIVE"
@@ -0,0 +1,22 @@
+#!/bin/sh
+# Compiles the POS and runs the synthetic cashier load, headless and against a live frame.
+# The live run needs a display; without one it is started under xvfb-run when available.
+# Extra arguments go to both runs, e.g. scripts/load-test.sh --seconds 30
+set -e
+cd "$(dirname "$0")/.."
+
+OUT=out/production/POS
+
+mkdir -p "$OUT"
+javac -encoding UTF-8 -d "$OUT" src/POS/*.java
+cp src/POS/*.jfc "$OUT/POS/"
+
+java -cp "$OUT" POS.LoadGenerator --scenario all "$@"
+
+if [ -n "$DISPLAY" ]; then
+    java -cp "$OUT" POS.LoadGenerator --scenario rush --mode live "$@"
+elif command -v xvfb-run >/dev/null 2>&1; then
+    xvfb-run -a java -cp "$OUT" POS.LoadGenerator --scenario rush --mode live "$@"
+else
+    echo "No display and no xvfb-run: skipping the live run"
+fi
@@ -0,0 +1,160 @@
+package POS;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Line storage for very large orders (catering, wholesale).
+ * The cart's {@link CartSnapshot.Builder} already keeps every line's product and quantity
+ * in chunked arrays, along with a running subtotal, so this storage reads the lines from
+ * there instead of keeping a second copy: the only thing it adds is a line index by
+ * catalog id in one primitive open-addressed table, which makes repeat scans O(1)
+ * instead of a name search. No object per line, and the subtotal costs nothing to read.
+ * Lines are matched by catalog id; within one catalog an id and a name are the same product.
+ */
+class ArrayCartStorage implements CartStorage {
+    private final CartSnapshot.Builder lines;
+
+    // Pairs of (product id, line + 1); a zero line marks an empty slot. At most half full.
+    private int[] table = new int[64];
+    private int size;
+
+    private final List<CartItem> view = new AbstractList<CartItem>() {
+        @Override
+        public CartItem get(int index) {
+            return item(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    // Shares the cart's line store; Cart updates it right after each call here
+    ArrayCartStorage(CartSnapshot.Builder lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Product product(int index) {
+        check(index);
+        return lines.product(index);
+    }
+
+    @Override
+    public int quantity(int index) {
+        check(index);
+        return lines.quantity(index);
+    }
+
+    @Override
+    public double total(int index) {
+        check(index);
+        return CartSnapshot.cents(lines.product(index).getPrice()) * lines.quantity(index) / 100.0;
+    }
+
+    @Override
+    public int indexOf(Product p) {
+        return table[slot(p.getId()) * 2 + 1] - 1;
+    }
+
+    // Slot holding the id, or the empty slot where it would go
+    private int slot(int id) {
+        int mask = (table.length >>> 1) - 1;
+        int s = spread(id) & mask;
+        while (table[s * 2 + 1] != 0 && table[s * 2] != id) s = (s + 1) & mask;
+        return s;
+    }
+
+    private static int spread(int h) {
+        int x = h * 0x9E3779B1;
+        return x ^ (x >>> 16);
+    }
+
+    @Override
+    public int append(Product p, int quantity) {
+        if ((size + 1) * 4 > table.length) grow();
+        int s = slot(p.getId());
+        table[s * 2] = p.getId();
+        table[s * 2 + 1] = size + 1;
+        return size++;
+    }
+
+    private void grow() {
+        int[] old = table;
+        table = new int[old.length * 2];
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i + 1] == 0) continue;
+            int s = slot(old[i]);
+            table[s * 2] = old[i];
+            table[s * 2 + 1] = old[i + 1];
+        }
+    }
+
+    @Override
+    public void setQuantity(int index, int quantity) {
+        check(index);
+    }
+
+    @Override
+    public void setProduct(int index, Product p) {
+        check(index);
+        int id = lines.product(index).getId();
+        if (id == p.getId()) return;
+        delete(slot(id));
+        int s = slot(p.getId());
+        table[s * 2] = p.getId();
+        table[s * 2 + 1] = index + 1;
+    }
+
+    @Override
+    public void remove(int index) {
+        check(index);
+        delete(slot(lines.product(index).getId()));
+        // Later lines move up by one
+        for (int i = index + 1; i < size; i++) {
+            table[slot(lines.product(i).getId()) * 2 + 1] = i;
+        }
+        size--;
+    }
+
+    // Empties a slot, moving later entries of the probe run back so lookups still find them
+    private void delete(int s) {
+        int mask = (table.length >>> 1) - 1;
+        for (int j = (s + 1) & mask; table[j * 2 + 1] != 0; j = (j + 1) & mask) {
+            int home = spread(table[j * 2]) & mask;
+            if (((j - home) & mask) >= ((j - s) & mask)) {
+                table[s * 2] = table[j * 2];
+                table[s * 2 + 1] = table[j * 2 + 1];
+                s = j;
+            }
+        }
+        table[s * 2] = 0;
+        table[s * 2 + 1] = 0;
+    }
+
+    @Override
+    public double subtotal() {
+        return lines.subtotalCents() / 100.0;
+    }
+
+    @Override
+    public CartItem item(int index) {
+        return new CartItem(product(index), quantity(index));
+    }
+
+    @Override
+    public List<CartItem> view() {
+        return view;
+    }
+
+    private void check(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Line " + index + ", size " + size);
+    }
+}
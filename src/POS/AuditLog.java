@@ -0,0 +1,226 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Loss-prevention trail of cart actions, written off the EDT.
+ * Events are encoded straight into fixed-size 32 byte slots of a preallocated ring; a
+ * writer thread drains whatever has accumulated in one or two writes (the ring is already
+ * the file format) and rolls to a new file past a size limit. The producer only writes
+ * a few fields and moves a cursor, so an event costs no allocation and no lock; when the
+ * ring is full it waits for the writer rather than dropping events.
+ * One producer thread (the EDT).
+ *
+ * File: 16 byte header (magic, version, record size, start time), then records of
+ * time (ms, 8), reference (order or ticket number, 8), product id (4), quantity before (4),
+ * quantity after (4), type (4). Little-endian.
+ *
+ * Usage (print files): java -cp out/production/POS POS.AuditLog audit/*.audit
+ */
+public class AuditLog implements AutoCloseable {
+    // Event types
+    public static final int SCAN = 1;      // Product tile or scanner; after = new quantity
+    public static final int REMOVE = 2;    // Remove button on a line
+    public static final int OVERRIDE = 3;  // Quantity typed into the cart table
+    public static final int CLEAR = 4;     // Clear Cart; before = lines, after = units
+    public static final int CHECKOUT = 5;  // Confirmed sale; ref = order number, before = lines, after = centavos
+    public static final int UNDO = 6;      // One per replayed command; ref = its sequence, before/after = line quantity as replayed
+    public static final int REDO = 7;      // Likewise
+    public static final int PARK = 8;      // ref = ticket
+    public static final int RECALL = 9;    // ref = ticket
+    public static final int MEMBER = 10;   // Follows CHECKOUT for a loyalty member; ref = card key, after = points earned
+    private static final String[] NAMES = {"?", "SCAN", "REMOVE", "OVERRIDE", "CLEAR", "CHECKOUT", "UNDO", "REDO", "PARK", "RECALL",
+            "MEMBER"};
+
+    static final int MAGIC = 0x504F5341; // "POSA"
+    static final int VERSION = 1;
+    static final int RECORD = 32;
+    private static final int HEADER = 16;
+
+    private final Path dir;
+    private final long rollBytes;
+    private final boolean sync;
+    private final ByteBuffer ring;
+    private final ByteBuffer drainView; // Writer's own view of the ring
+    private final int mask;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Producer: next sequence to fill, and the writer's progress as last seen
+    private long next;
+    private long cachedDrained;
+    // Published by the producer, consumed by the writer
+    private final OrderRingBuffer.Sequence published = new OrderRingBuffer.Sequence(0);
+    private final OrderRingBuffer.Sequence drained = new OrderRingBuffer.Sequence(0);
+
+    // Writer state
+    private FileChannel file;
+    private long fileBytes;
+    private int fileNo;
+
+    // Statistics
+    private volatile long stalls;
+    private volatile long batches;
+
+    /**
+     * Opens a log writing into dir; capacity (records, a power of two) bounds how far the
+     * writer may fall behind before the producer waits.
+     */
+    public AuditLog(Path dir, int capacity, long rollBytes, boolean sync) throws IOException {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        this.dir = dir;
+        this.rollBytes = rollBytes;
+        this.sync = sync;
+        this.ring = ByteBuffer.allocateDirect(capacity * RECORD).order(ByteOrder.LITTLE_ENDIAN);
+        this.drainView = ring.duplicate();
+        this.mask = capacity - 1;
+        Files.createDirectories(dir);
+        roll();
+        this.writer = new Thread(this::drain, "Audit-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Appends an event. Waits while the ring is full.
+     */
+    public void log(int type, int productId, int before, int after, long ref) {
+        long seq = next;
+        if (seq - cachedDrained >= ring.capacity() / RECORD
+                && seq - (cachedDrained = drained.get()) >= ring.capacity() / RECORD) {
+            // Full: wait for the writer instead of dropping
+            stalls++;
+            int spins = 0;
+            while (seq - (cachedDrained = drained.get()) >= ring.capacity() / RECORD) {
+                if (++spins < 100) Thread.onSpinWait();
+                else LockSupport.parkNanos(50_000L);
+            }
+        }
+        int at = ((int) seq & mask) * RECORD;
+        ring.putLong(at, System.currentTimeMillis());
+        ring.putLong(at + 8, ref);
+        ring.putInt(at + 16, productId);
+        ring.putInt(at + 20, before);
+        ring.putInt(at + 24, after);
+        ring.putInt(at + 28, type);
+        next = seq + 1;
+        published.set(next);
+    }
+
+    // Writer thread: drains in batches, every millisecond at most
+    private void drain() {
+        long done = 0;
+        while (true) {
+            long end = published.get();
+            if (end == done) {
+                if (!running) break;
+                LockSupport.parkNanos(1_000_000L);
+                continue;
+            }
+            try {
+                if (fileBytes >= rollBytes) roll();
+                write(done, end);
+                if (sync) file.force(false);
+            } catch (IOException e) {
+                // Keep the events in the ring (the producer waits) and retry them in a new file
+                System.err.println("Audit log write failed: " + e.getMessage());
+                fileBytes = rollBytes;
+                LockSupport.parkNanos(1_000_000_000L);
+                continue;
+            }
+            batches++;
+            done = end;
+            drained.set(done);
+        }
+    }
+
+    // Writes records [from, to) in one or two slices of the ring
+    private void write(long from, long to) throws IOException {
+        int capacity = mask + 1;
+        while (from < to) {
+            int start = (int) from & mask;
+            int n = (int) Math.min(to - from, capacity - start);
+            drainView.limit((start + n) * RECORD).position(start * RECORD);
+            while (drainView.hasRemaining()) fileBytes += file.write(drainView);
+            from += n;
+        }
+    }
+
+    private void roll() throws IOException {
+        if (file != null) {
+            file.force(false);
+            file.close();
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        Path p;
+        do {
+            p = dir.resolve("audit-" + stamp + "-" + (++fileNo) + ".audit");
+        } while (Files.exists(p));
+        file = FileChannel.open(p, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        h.putInt(MAGIC).putShort((short) VERSION).putShort((short) RECORD).putLong(System.currentTimeMillis()).flip();
+        while (h.hasRemaining()) file.write(h);
+        fileBytes = HEADER;
+    }
+
+    // Events logged but not yet written
+    public long getBacklog() {
+        return published.get() - drained.get();
+    }
+
+    // Times the producer had to wait for the writer
+    public long getStalls() {
+        return stalls;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    // Writes out what is logged and closes the file
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        file.force(false);
+        file.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        for (String name : args) {
+            ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(Paths.get(name))).order(ByteOrder.LITTLE_ENDIAN);
+            if (b.remaining() < HEADER || b.getInt() != MAGIC) {
+                System.err.println(name + ": not an audit log");
+                continue;
+            }
+            b.getShort();
+            int size = b.getShort();
+            b.getLong();
+            System.out.println("# " + name);
+            // A torn last record is ignored
+            while (b.remaining() >= size) {
+                int at = b.position();
+                int type = b.getInt(at + 28);
+                System.out.printf("%s %-8s ref=%d product=%d %d -> %d%n", fmt.format(new Date(b.getLong(at))),
+                        type > 0 && type < NAMES.length ? NAMES[type] : String.valueOf(type),
+                        b.getLong(at + 8), b.getInt(at + 16), b.getInt(at + 20), b.getInt(at + 24));
+                b.position(at + size);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package POS;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * Static background layer, rendered once into an image and blitted on every repaint.
+ * The image is keyed by the component size and only redrawn after a resize (or
+ * {@link #invalidate()}). Opaque layers use a VolatileImage so the blit stays in
+ * video memory; translucent layers (rounded corners) use a compatible managed image.
+ * The image is also redrawn when the {@link RenderQuality} tier changes.
+ * Set pos.paint.cache=false to paint directly, e.g. to compare repaint cost.
+ */
+public class CachedLayer {
+    // Draws the layer into a w x h area
+    public interface Painter {
+        void paint(Graphics2D g, int w, int h);
+    }
+
+    static final boolean ENABLED = !"false".equals(System.getProperty("pos.paint.cache"));
+
+    private final Painter painter;
+    private final boolean opaque;
+
+    private VolatileImage volatileImage;
+    private BufferedImage image;
+    private int width = -1;
+    private int height = -1;
+    private RenderQuality.Tier tier;
+
+    public CachedLayer(boolean opaque, Painter painter) {
+        this.opaque = opaque;
+        this.painter = painter;
+    }
+
+    // Drops the cached image; the next paint redraws it
+    public void invalidate() {
+        width = -1;
+        height = -1;
+    }
+
+    /**
+     * Paints the layer at 0,0 with the component's current size.
+     */
+    public void paint(Component c, Graphics g) {
+        int w = c.getWidth();
+        int h = c.getHeight();
+        if (w <= 0 || h <= 0) return;
+        if (tier != RenderQuality.get().getTier()) invalidate();
+        if (!ENABLED) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                painter.paint(g2, w, h);
+            } finally {
+                g2.dispose();
+            }
+            return;
+        }
+        GraphicsConfiguration gc = c.getGraphicsConfiguration();
+        if (opaque && gc != null) {
+            paintVolatile(c, g, gc, w, h);
+        } else {
+            paintManaged(c, g, gc, w, h);
+        }
+    }
+
+    private void paintVolatile(Component c, Graphics g, GraphicsConfiguration gc, int w, int h) {
+        // Contents can be lost at any time (display change, screen lock), so retry a few times
+        for (int attempt = 0; attempt < 3; attempt++) {
+            int valid = volatileImage == null
+                    ? VolatileImage.IMAGE_INCOMPATIBLE : volatileImage.validate(gc);
+            boolean redraw = valid == VolatileImage.IMAGE_RESTORED;
+            if (valid == VolatileImage.IMAGE_INCOMPATIBLE || w != width || h != height) {
+                if (volatileImage != null) volatileImage.flush();
+                volatileImage = gc.createCompatibleVolatileImage(w, h, Transparency.OPAQUE);
+                redraw = true;
+            }
+            if (redraw) {
+                render(c, volatileImage.createGraphics(), w, h);
+            }
+            g.drawImage(volatileImage, 0, 0, null);
+            if (!volatileImage.contentsLost()) return;
+            width = -1;
+        }
+        // Give up on acceleration for this frame
+        image = null;
+        paintManaged(c, g, gc, w, h);
+    }
+
+    private void paintManaged(Component c, Graphics g, GraphicsConfiguration gc, int w, int h) {
+        if (image == null || w != width || h != height) {
+            int transparency = opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT;
+            image = gc != null
+                    ? gc.createCompatibleImage(w, h, transparency)
+                    : new BufferedImage(w, h, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            render(c, image.createGraphics(), w, h);
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+
+    private void render(Component c, Graphics2D g, int w, int h) {
+        try {
+            g.setFont(c.getFont());
+            painter.paint(g, w, h);
+        } finally {
+            g.dispose();
+        }
+        width = w;
+        height = h;
+        tier = RenderQuality.get().getTier();
+    }
+}
@@ -5,46 +5,202 @@ import java.util.List;
 
 // Cart
 public class Cart {
+    /**
+     * Line storage layout.
+     * - OBJECTS: one CartItem per line (default)
+     * - ARRAYS: lines only in the snapshot arrays, indexed by id, for orders with tens of
+     *   thousands of lines
+     */
+    public enum Storage { OBJECTS, ARRAYS }
+
     // Items
-    private final List<CartItem> items = new ArrayList<>();
+    private final CartStorage items;
+
+    // Structurally shared copy of the lines for snapshot()
+    private final CartSnapshot.Builder lines = new CartSnapshot.Builder();
+
+    // Listeners
+    private final List<CartListener> listeners = new ArrayList<>();
+
+    // Storage from pos.cart.storage (objects or arrays)
+    public Cart() {
+        this(configuredStorage());
+    }
+
+    public Cart(Storage storage) {
+        this.items = storage == Storage.ARRAYS ? new ArrayCartStorage(lines) : new ObjectCartStorage();
+    }
+
+    private static Storage configuredStorage() {
+        String s = System.getProperty("pos.cart.storage", "objects");
+        try {
+            return Storage.valueOf(s.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown pos.cart.storage '" + s + "', using objects");
+            return Storage.OBJECTS;
+        }
+    }
+
+    public void addListener(CartListener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(CartListener l) {
+        listeners.remove(l);
+    }
 
     // Add
     public void addProduct(Product p) {
-        for (CartItem ci : items) {
-            if (ci.getProduct().getName().equals(p.getName())) {
-                ci.incrementQuantity();
-                return;
-            }
+        CartChangeEvent ev = new CartChangeEvent();
+        ev.begin();
+        addLine(p);
+        commit(ev, "add", p);
+    }
+
+    private void addLine(Product p) {
+        int i = items.indexOf(p);
+        if (i >= 0) {
+            int old = items.quantity(i);
+            items.setQuantity(i, old + 1);
+            lines.set(i, items.product(i), old + 1);
+            fireChanged(i, old);
+            return;
         }
-        items.add(new CartItem(p, 1));
+        i = items.append(p, 1);
+        lines.append(p, 1);
+        if (listeners.isEmpty()) return;
+        CartItem ci = items.item(i);
+        for (CartListener l : listeners) l.lineAdded(i, ci);
     }
 
     // Remove
     public void removeProduct(Product p) {
+        CartChangeEvent ev = new CartChangeEvent();
+        ev.begin();
         // RemoveByName
-        items.removeIf(ci -> ci.getProduct().getName().equals(p.getName()));
+        int i = items.indexOf(p);
+        if (i >= 0) removeLine(i);
+        commit(ev, "remove", p);
+    }
+
+    // Set qty of a line; zero or less removes it
+    public void setQuantity(int index, int quantity) {
+        if (index < 0 || index >= items.size()) return;
+        if (quantity <= 0) {
+            removeProduct(items.product(index));
+            return;
+        }
+        int old = items.quantity(index);
+        if (old == quantity) return;
+        items.setQuantity(index, quantity);
+        lines.set(index, items.product(index), quantity);
+        fireChanged(index, old);
+    }
+
+    /**
+     * Swaps in a new version of a product (matched by id) after a catalog reload,
+     * keeping the quantity. Returns false when the product is not in the cart.
+     */
+    public boolean replaceProduct(Product p) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.product(i).getId() == p.getId()) {
+                items.setProduct(i, p);
+                lines.set(i, p, items.quantity(i));
+                fireChanged(i, items.quantity(i));
+                return true;
+            }
+        }
+        return false;
     }
 
-    // Clear
+    // Fields are only filled when the recording wants the event
+    private void commit(CartChangeEvent ev, String operation, Product p) {
+        if (ev.shouldCommit()) {
+            ev.operation = operation;
+            ev.product = p.getName();
+            ev.cartSize = items.size();
+            ev.commit();
+        }
+    }
+
+    private void removeLine(int index) {
+        CartItem ci = listeners.isEmpty() ? null : items.item(index);
+        items.remove(index);
+        lines.remove(index);
+        for (CartListener l : listeners) l.lineRemoved(index, ci);
+    }
+
+    private void fireChanged(int index, int oldQuantity) {
+        if (listeners.isEmpty()) return;
+        CartItem ci = items.item(index);
+        for (CartListener l : listeners) l.lineChanged(index, ci, oldQuantity);
+    }
+
+    // Line index of a product (matched by name, or by id with ARRAYS storage), or -1
+    public int indexOf(Product p) {
+        return items.indexOf(p);
+    }
+
+    // Clear (the member goes with the lines)
     public void clear() {
-        items.clear();
+        setMember(null);
+        for (CartListener l : listeners) l.beginBatch();
+        for (int i = items.size() - 1; i >= 0; i--) {
+            removeLine(i);
+        }
+        for (CartListener l : listeners) l.endBatch();
     }
 
-    // GetItems
+    // GetItems (read-only; mutate through the cart so listeners and snapshots stay in sync).
+    // With ARRAYS storage the items are copies made on access.
     public List<CartItem> getItems() {
-        return items;
+        return items.view();
+    }
+
+    // Line accessors that work without a CartItem per line
+    public int size() {
+        return items.size();
+    }
+
+    public Product getProduct(int index) {
+        return items.product(index);
+    }
+
+    public int getQuantity(int index) {
+        return items.quantity(index);
+    }
+
+    public double getLineTotal(int index) {
+        return items.total(index);
+    }
+
+    /**
+     * Immutable snapshot of the current lines, for reading on other threads.
+     * Cheap: repeated calls without changes return the same instance, and lines are
+     * shared with earlier snapshots.
+     */
+    public CartSnapshot snapshot() {
+        return lines.snapshot();
     }
 
     // Subtotal
     public double getSubtotal() {
-        double sum = 0.0;
-        for (CartItem ci : items) {
-            sum = sum + ci.getTotalPrice();
-        }
-        return sum;
+        return items.subtotal();
     }
 
     public boolean isEmpty() {
-        return items.isEmpty();
+        return items.size() == 0;
+    }
+
+    // Loyalty member the order is for, or null; snapshots carry it to checkout
+    public LoyaltyMembers.Member getMember() {
+        return lines.getMember();
+    }
+
+    // Attaches a loyalty member (null detaches)
+    public void setMember(LoyaltyMembers.Member member) {
+        if (member == lines.getMember()) return;
+        lines.setMember(member);
+        for (CartListener l : listeners) l.memberChanged(member);
     }
 }
@@ -0,0 +1,25 @@
+package POS;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR: product added to or removed from the cart
+@Name("POS.CartChange")
+@Label("Cart Change")
+@Category({"POS", "Cart"})
+@Description("Cart.addProduct / Cart.removeProduct")
+@StackTrace(false)
+class CartChangeEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Product")
+    String product;
+
+    @Label("Cart Size")
+    @Description("Number of lines after the change")
+    int cartSize;
+}
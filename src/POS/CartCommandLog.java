@@ -0,0 +1,187 @@
+package POS;
+
+import java.util.function.IntFunction;
+
+/**
+ * Undo/redo for cart edits. Listens to the cart and records each line mutation as a command
+ * (product id, quantity before, quantity after) in a bounded ring of primitive arrays, so
+ * recording is a few int stores: no allocation and no object reference per scan.
+ * Commands address lines by product id rather than index, so undoing a removal can append
+ * the line back and later commands still find their lines; replay resolves the id through
+ * the current catalog, so undo restores current prices after a reload. The lines removed by
+ * one clear() are joined to the first and undone together. Once the ring is full the oldest
+ * commands are overwritten; recording after an undo drops the commands that could have been
+ * redone.
+ * EDT only, like the cart.
+ */
+public class CartCommandLog implements CartListener {
+    private final Cart cart;
+    private final IntFunction<Product> catalog;
+    private final int mask;
+
+    // Ring of commands, indexed by sequence & mask
+    private final int[] products;
+    private final int[] before;
+    private final int[] after;
+    private final boolean[] joined; // Recorded in the same clear() as the previous command
+
+    private long head;       // Sequence of the next command
+    private long cursor;     // Commands before this are applied; from here to head can be redone
+    private boolean inBatch;    // A clear() is in progress
+    private boolean batchOpened; // Its first command is recorded
+    private boolean replaying;  // Set while undo/redo mutates the cart
+
+    // Products are looked up by id in the catalog current at replay; capacity is rounded up to a power of two
+    public CartCommandLog(Cart cart, IntFunction<Product> catalog, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.cart = cart;
+        this.catalog = catalog;
+        this.mask = size - 1;
+        this.products = new int[size];
+        this.before = new int[size];
+        this.after = new int[size];
+        this.joined = new boolean[size];
+        cart.addListener(this);
+    }
+
+    @Override
+    public void lineAdded(int index, CartItem item) {
+        record(item.getProduct().getId(), 0, item.getQuantity());
+    }
+
+    @Override
+    public void lineChanged(int index, CartItem item, int oldQuantity) {
+        // Same quantity: a catalog reload swapped in a new product version, nothing to undo
+        if (oldQuantity != item.getQuantity()) record(item.getProduct().getId(), oldQuantity, item.getQuantity());
+    }
+
+    @Override
+    public void lineRemoved(int index, CartItem item) {
+        record(item.getProduct().getId(), item.getQuantity(), 0);
+    }
+
+    @Override
+    public void beginBatch() {
+        if (!replaying) {
+            inBatch = true;
+            batchOpened = false;
+        }
+    }
+
+    @Override
+    public void endBatch() {
+        inBatch = false;
+    }
+
+    private void record(int productId, int from, int to) {
+        if (replaying) return;
+        // A new edit ends the redo branch
+        head = cursor;
+        int i = (int) head & mask;
+        products[i] = productId;
+        before[i] = from;
+        after[i] = to;
+        joined[i] = inBatch && batchOpened;
+        batchOpened = inBatch;
+        cursor = ++head;
+    }
+
+    private long oldest() {
+        return Math.max(0, head - products.length);
+    }
+
+    public boolean canUndo() {
+        return cursor > oldest();
+    }
+
+    public boolean canRedo() {
+        return cursor < head;
+    }
+
+    // Reverts the last command (or clear); returns false when there is nothing to undo
+    public boolean undo() {
+        if (!canUndo()) return false;
+        replaying = true;
+        try {
+            boolean more;
+            do {
+                cursor--;
+                int i = (int) cursor & mask;
+                apply(products[i], before[i]);
+                more = joined[i];
+            } while (more && cursor > oldest());
+        } finally {
+            replaying = false;
+        }
+        return true;
+    }
+
+    // Re-applies the last undone command (or clear); returns false when there is nothing to redo
+    public boolean redo() {
+        if (!canRedo()) return false;
+        replaying = true;
+        try {
+            do {
+                int i = (int) cursor & mask;
+                apply(products[i], after[i]);
+                cursor++;
+            } while (cursor < head && joined[(int) cursor & mask]);
+        } finally {
+            replaying = false;
+        }
+        return true;
+    }
+
+    // Brings the product's line to the quantity, adding or removing the line as needed
+    private void apply(int productId, int quantity) {
+        int line = lineOf(productId);
+        if (line < 0) {
+            Product p = catalog.apply(productId);
+            // A product dropped from the catalog is not sold again
+            if (quantity <= 0 || p == null) return;
+            cart.addProduct(p);
+            line = cart.indexOf(p);
+        }
+        cart.setQuantity(line, quantity);
+    }
+
+    private int lineOf(int productId) {
+        for (int i = 0; i < cart.size(); i++) {
+            if (cart.getProduct(i).getId() == productId) return i;
+        }
+        return -1;
+    }
+
+    // Forgets all commands, e.g. once the order is sold
+    public void reset() {
+        head = cursor = 0;
+        inBatch = false;
+    }
+
+    // Commands recorded so far (the sequence of the next one); older ones may be overwritten
+    public long getRecorded() {
+        return head;
+    }
+
+    // Sequence of the next command to redo; undo() and redo() replay the commands they move it across
+    public long getCursor() {
+        return cursor;
+    }
+
+    // Command at a sequence in [getRecorded() - getCapacity(), getRecorded())
+    public int getProductId(long seq) {
+        return products[(int) seq & mask];
+    }
+
+    public int getQuantityBefore(long seq) {
+        return before[(int) seq & mask];
+    }
+
+    public int getQuantityAfter(long seq) {
+        return after[(int) seq & mask];
+    }
+
+    public int getCapacity() {
+        return products.length;
+    }
+}
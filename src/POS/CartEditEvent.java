@@ -0,0 +1,30 @@
+package POS;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR: cell edit in the cart table
+@Name("POS.CartEdit")
+@Label("Cart Edit")
+@Category({"POS", "Cart"})
+@Description("CartTableModel.setValueAt")
+@StackTrace(false)
+class CartEditEvent extends jdk.jfr.Event {
+    @Label("Product")
+    String product;
+
+    @Label("Row")
+    int row;
+
+    @Label("Column")
+    int column;
+
+    @Label("Value")
+    String value;
+
+    @Label("Cart Size")
+    int cartSize;
+}
@@ -0,0 +1,24 @@
+package POS;
+
+// Cart change events, fired by Cart after each line mutation
+public interface CartListener {
+    // New line at index
+    void lineAdded(int index, CartItem item);
+
+    // Quantity of the line at index changed
+    void lineChanged(int index, CartItem item, int oldQuantity);
+
+    // Line removed from index; clear() removes lines from the last one down
+    void lineRemoved(int index, CartItem item);
+
+    // Brackets the removals of one clear(), so they can be treated as a single edit
+    default void beginBatch() {
+    }
+
+    default void endBatch() {
+    }
+
+    // Loyalty member attached, or null when detached (also by clear())
+    default void memberChanged(LoyaltyMembers.Member member) {
+    }
+}
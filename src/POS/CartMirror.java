@@ -0,0 +1,227 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Mirrors the open cart into a small memory-mapped file so it survives a crash.
+ * Each cart line is a fixed-size record that is updated in place by the cart events,
+ * so a scan costs a few stores into the mapping: no file open, no serialization.
+ *
+ * Layout: a 32 byte header (magic, version, line count, capacity, mutation counter,
+ * loyalty card key or 0) followed by 16 byte records (product id, quantity, unit price
+ * in centavos).
+ * The line count is written last, so a torn write leaves at most a duplicated line,
+ * which restore() merges back.
+ */
+public class CartMirror implements CartListener, AutoCloseable {
+    private static final int MAGIC = 0x504F5343; // "POSC"
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int RECORD = 16;
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_COUNT = 8;
+    private static final int OFF_CAPACITY = 12;
+    private static final int OFF_SEQ = 16;
+    private static final int OFF_MEMBER = 24;
+
+    /**
+     * When the mirror reaches the disk.
+     * - PROCESS: page cache only; survives an application crash, not a power loss
+     * - PERIODIC: a background thread forces dirty pages every 100 ms
+     * - SYNC: every mutation is forced before returning (slow, for power-loss safety)
+     */
+    public enum Durability { PROCESS, PERIODIC, SYNC }
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private MappedByteBuffer buf;
+    private volatile MappedByteBuffer flushTarget; // buf as seen by the flusher thread
+    private int capacity;
+    private int count;
+    private long seq;
+    private volatile boolean dirty;
+    private Thread flusher;
+
+    private CartMirror(FileChannel channel, Durability durability, int capacity) throws IOException {
+        this.channel = channel;
+        this.durability = durability;
+        map(capacity);
+        if (buf.getInt(OFF_MAGIC) != MAGIC || buf.getInt(OFF_VERSION) != VERSION) {
+            buf.putInt(OFF_MAGIC, MAGIC);
+            buf.putInt(OFF_VERSION, VERSION);
+            buf.putInt(OFF_COUNT, 0);
+            buf.putLong(OFF_SEQ, 0);
+            buf.putLong(OFF_MEMBER, 0);
+        }
+        buf.putInt(OFF_CAPACITY, this.capacity);
+        count = Math.min(Math.max(buf.getInt(OFF_COUNT), 0), this.capacity);
+        seq = buf.getLong(OFF_SEQ);
+        if (durability == Durability.PERIODIC) startFlusher();
+    }
+
+    /**
+     * Opens (or creates) the mirror file. Existing content is kept for restore().
+     */
+    public static CartMirror open(Path file, Durability durability) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = ch.size();
+        int capacity = size > HEADER ? (int) ((size - HEADER) / RECORD) : 256;
+        return new CartMirror(ch, durability, Math.max(capacity, 256));
+    }
+
+    private void map(int newCapacity) throws IOException {
+        capacity = newCapacity;
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) RECORD * capacity);
+        buf.order(ByteOrder.nativeOrder());
+        flushTarget = buf;
+    }
+
+    /**
+     * Loads the mirrored lines into an empty cart, resolving product ids against the catalog,
+     * and the loyalty member by card key. Lines whose product is no longer in the catalog are
+     * dropped, and so is a member the lookup no longer finds.
+     * Returns the number of lines restored.
+     */
+    public int restore(Cart cart, List<Product> catalog, LongFunction<LoyaltyMembers.Member> members) {
+        Map<Integer, Product> byId = new HashMap<>();
+        for (Product p : catalog) byId.put(p.getId(), p);
+        int n = count;
+        int[] ids = new int[n];
+        int[] qty = new int[n];
+        for (int i = 0; i < n; i++) {
+            int at = HEADER + i * RECORD;
+            ids[i] = buf.getInt(at);
+            qty[i] = buf.getInt(at + 4);
+        }
+        for (int i = 0; i < n; i++) {
+            Product p = byId.get(ids[i]);
+            if (p == null || qty[i] <= 0) continue;
+            // A duplicated record from a torn write merges into the same line
+            cart.addProduct(p);
+            cart.setQuantity(cart.indexOf(p), qty[i]);
+        }
+        long card = buf.getLong(OFF_MEMBER);
+        if (card != 0 && !cart.isEmpty()) cart.setMember(members.apply(card));
+        rewrite(cart);
+        return cart.size();
+    }
+
+    // Rewrites the whole mirror from the cart
+    public void rewrite(Cart cart) {
+        int n = cart.size();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) writeRecord(i, cart.getProduct(i), cart.getQuantity(i));
+        buf.putLong(OFF_MEMBER, cart.getMember() == null ? 0 : cart.getMember().getCard());
+        setCount(n);
+    }
+
+    @Override
+    public void lineAdded(int index, CartItem item) {
+        ensureCapacity(count + 1);
+        // Shift later records up when not appending
+        for (int i = count; i > index; i--) copyRecord(i - 1, i);
+        writeRecord(index, item.getProduct(), item.getQuantity());
+        setCount(count + 1);
+    }
+
+    @Override
+    public void lineChanged(int index, CartItem item, int oldQuantity) {
+        writeRecord(index, item.getProduct(), item.getQuantity());
+        bump();
+    }
+
+    @Override
+    public void lineRemoved(int index, CartItem item) {
+        for (int i = index; i < count - 1; i++) copyRecord(i + 1, i);
+        setCount(count - 1);
+    }
+
+    @Override
+    public void memberChanged(LoyaltyMembers.Member member) {
+        buf.putLong(OFF_MEMBER, member == null ? 0 : member.getCard());
+        bump();
+    }
+
+    private void writeRecord(int index, Product p, int quantity) {
+        int at = HEADER + index * RECORD;
+        buf.putInt(at, p.getId());
+        buf.putInt(at + 4, quantity);
+        buf.putLong(at + 8, CartSnapshot.cents(p.getPrice()));
+    }
+
+    private void copyRecord(int from, int to) {
+        int src = HEADER + from * RECORD;
+        int dst = HEADER + to * RECORD;
+        buf.putLong(dst, buf.getLong(src));
+        buf.putLong(dst + 8, buf.getLong(src + 8));
+    }
+
+    private void setCount(int n) {
+        count = n;
+        buf.putInt(OFF_COUNT, n);
+        bump();
+    }
+
+    private void bump() {
+        buf.putLong(OFF_SEQ, ++seq);
+        if (durability == Durability.SYNC) {
+            buf.force();
+        } else {
+            dirty = true;
+        }
+    }
+
+    // Remaps a larger file; rare, only for very large orders
+    private void ensureCapacity(int lines) {
+        if (lines <= capacity) return;
+        try {
+            int next = capacity;
+            while (next < lines) next *= 2;
+            map(next);
+            buf.putInt(OFF_CAPACITY, capacity);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot grow cart mirror", e);
+        }
+    }
+
+    private void startFlusher() {
+        flusher = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (dirty) {
+                    dirty = false;
+                    flushTarget.force();
+                }
+            }
+        }, "Cart-Mirror-Flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public int getLineCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) flusher.interrupt();
+        buf.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,21 @@
+package POS;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR: cart table and totals refresh
+@Name("POS.CartRefresh")
+@Label("Cart Refresh")
+@Category({"POS", "Render"})
+@Description("Main.refreshCartView")
+@StackTrace(false)
+class CartRefreshEvent extends jdk.jfr.Event {
+    @Label("Cart Size")
+    int cartSize;
+
+    @Label("Subtotal")
+    double subtotal;
+}
@@ -0,0 +1,203 @@
+package POS;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * Immutable view of the cart at one point in time, safe to read from any thread.
+ * Lines are stored in fixed-size chunks that are shared between snapshots: the cart
+ * copies a chunk only when it writes to one that a snapshot still references, so taking
+ * a snapshot copies one reference per 32 lines instead of the whole cart.
+ */
+public final class CartSnapshot extends AbstractList<CartSnapshot.Line> {
+    private static final int SHIFT = 5;
+    private static final int CHUNK = 1 << SHIFT;
+    private static final int MASK = CHUNK - 1;
+
+    static final CartSnapshot EMPTY = new CartSnapshot(new Product[0][], new int[0][], 0, 0L, 0L, null);
+
+    // One cart line, immutable
+    public static final class Line {
+        private final Product product;
+        private final int quantity;
+
+        Line(Product product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getTotalPrice() {
+            return product.getPrice() * quantity;
+        }
+    }
+
+    private final Product[][] products;
+    private final int[][] quantities;
+    private final int size;
+    private final long version;
+    private final long subtotalCents;
+    private final LoyaltyMembers.Member member;
+
+    private CartSnapshot(Product[][] products, int[][] quantities, int size, long version, long subtotalCents,
+                         LoyaltyMembers.Member member) {
+        this.products = products;
+        this.quantities = quantities;
+        this.size = size;
+        this.version = version;
+        this.subtotalCents = subtotalCents;
+        this.member = member;
+    }
+
+    // Lines are materialized on access; the snapshot itself holds only arrays
+    @Override
+    public Line get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Line " + index + ", size " + size);
+        return new Line(products[index >>> SHIFT][index & MASK], quantities[index >>> SHIFT][index & MASK]);
+    }
+
+    public Product getProduct(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Line " + index + ", size " + size);
+        return products[index >>> SHIFT][index & MASK];
+    }
+
+    public int getQuantity(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Line " + index + ", size " + size);
+        return quantities[index >>> SHIFT][index & MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Cart version this snapshot was taken at; increases with every mutation
+    public long getVersion() {
+        return version;
+    }
+
+    public double getSubtotal() {
+        return subtotalCents / 100.0;
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    // Loyalty member the order is for, or null
+    public LoyaltyMembers.Member getMember() {
+        return member;
+    }
+
+    static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Copy-on-write line store kept by Cart alongside its storage.
+     * Each chunk is a pair of product and quantity arrays, so no object is kept per line.
+     * Not thread-safe; only the snapshots it hands out are.
+     */
+    static final class Builder {
+        private Product[][] products = new Product[4][];
+        private int[][] quantities = new int[4][];
+        // True when the chunk is referenced by a published snapshot and must be copied before writing
+        private boolean[] shared = new boolean[4];
+        private int size;
+        private long version;
+        private long subtotalCents;
+        private LoyaltyMembers.Member member;
+        private CartSnapshot last = EMPTY;
+
+        void append(Product p, int quantity) {
+            int c = size >>> SHIFT;
+            if (c == products.length) {
+                products = Arrays.copyOf(products, c * 2);
+                quantities = Arrays.copyOf(quantities, c * 2);
+                shared = Arrays.copyOf(shared, c * 2);
+            }
+            if (products[c] == null) {
+                products[c] = new Product[CHUNK];
+                quantities[c] = new int[CHUNK];
+                shared[c] = false;
+            }
+            size++;
+            set(size - 1, p, quantity);
+        }
+
+        void set(int index, Product p, int quantity) {
+            int c = index >>> SHIFT;
+            int i = index & MASK;
+            subtotalCents += lineCents(p, quantity) - lineCents(products[c][i], quantities[c][i]);
+            store(index, p, quantity);
+            version++;
+        }
+
+        void remove(int index) {
+            int c = index >>> SHIFT;
+            int i = index & MASK;
+            subtotalCents -= lineCents(products[c][i], quantities[c][i]);
+            for (int k = index; k < size - 1; k++) {
+                int nc = (k + 1) >>> SHIFT;
+                int ni = (k + 1) & MASK;
+                store(k, products[nc][ni], quantities[nc][ni]);
+            }
+            store(size - 1, null, 0);
+            size--;
+            version++;
+        }
+
+        private void store(int index, Product p, int quantity) {
+            int c = index >>> SHIFT;
+            if (shared[c]) {
+                products[c] = products[c].clone();
+                quantities[c] = quantities[c].clone();
+                shared[c] = false;
+            }
+            products[c][index & MASK] = p;
+            quantities[c][index & MASK] = quantity;
+        }
+
+        Product product(int index) {
+            return products[index >>> SHIFT][index & MASK];
+        }
+
+        int quantity(int index) {
+            return quantities[index >>> SHIFT][index & MASK];
+        }
+
+        long subtotalCents() {
+            return subtotalCents;
+        }
+
+        LoyaltyMembers.Member getMember() {
+            return member;
+        }
+
+        void setMember(LoyaltyMembers.Member m) {
+            if (m == member) return;
+            member = m;
+            version++;
+        }
+
+        private static long lineCents(Product p, int quantity) {
+            return p == null ? 0L : cents(p.getPrice()) * quantity;
+        }
+
+        CartSnapshot snapshot() {
+            if (last.version == version) return last;
+            int used = (size + MASK) >>> SHIFT;
+            for (int c = 0; c < used; c++) shared[c] = true;
+            last = new CartSnapshot(Arrays.copyOf(products, used), Arrays.copyOf(quantities, used),
+                    size, version, subtotalCents, member);
+            return last;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package POS;
+
+import java.util.List;
+
+// Line storage behind Cart; see ObjectCartStorage and ArrayCartStorage
+interface CartStorage {
+    int size();
+
+    Product product(int index);
+
+    int quantity(int index);
+
+    // Line total
+    double total(int index);
+
+    // Line index of a product (matched by name, or by catalog id), or -1
+    int indexOf(Product p);
+
+    // Appends a line and returns its index
+    int append(Product p, int quantity);
+
+    void setQuantity(int index, int quantity);
+
+    void setProduct(int index, Product p);
+
+    void remove(int index);
+
+    double subtotal();
+
+    // The line as a CartItem; a copy when the storage does not keep CartItem objects
+    CartItem item(int index);
+
+    // Read-only list view of the lines
+    List<CartItem> view();
+}
@@ -0,0 +1,95 @@
+package POS;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Footprint and subtotal time of the two cart storage layouts.
+ * Footprint is the heap retained by a filled cart (including the snapshot chunks),
+ * measured as the heap a GC frees once the cart is dropped.
+ * Before timing, a repeated-scan pass checks both layouts merge a rescan into the same line.
+ *
+ * Usage: java -cp out/production/POS POS.CartStorageBenchmark [lines]
+ */
+public class CartStorageBenchmark {
+    private static volatile double sink;
+    // Keeps the cart reachable across the footprint measurement
+    private static Cart held;
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        Product[] products = new Product[lines];
+        for (int i = 0; i < lines; i++) {
+            products[i] = i % 3 == 0 ? new DrinkItem(i + 1, "SKU" + i, 1.25 + i % 40) : new FoodItem(i + 1, "SKU" + i, 2.5 + i % 90);
+        }
+        checkRescan(products);
+        for (int round = 0; round < 2; round++) {
+            for (Cart.Storage s : Cart.Storage.values()) run(s, products, round == 1);
+        }
+    }
+
+    // Scans every product, then all of them again: each rescan must add to its own line,
+    // leaving both layouts with one line per product at quantity 2
+    private static void checkRescan(Product[] products) {
+        int n = Math.min(products.length, 4_096);
+        int[] lineCounts = new int[Cart.Storage.values().length];
+        for (Cart.Storage s : Cart.Storage.values()) {
+            Cart cart = new Cart(s);
+            for (int i = 0; i < n; i++) cart.addProduct(products[i]);
+            for (int i = 0; i < n; i++) cart.addProduct(products[i]);
+            for (int i = 0; i < n; i++) {
+                if (cart.indexOf(products[i]) != i || cart.getQuantity(i) != 2) {
+                    throw new AssertionError(s + ": rescan of " + products[i].getName() + " did not land on line " + i);
+                }
+            }
+            lineCounts[s.ordinal()] = cart.size();
+        }
+        for (int c : lineCounts) {
+            if (c != lineCounts[0]) throw new AssertionError("Layouts differ in line count after rescans: " + Arrays.toString(lineCounts));
+        }
+    }
+
+    private static void run(Cart.Storage storage, Product[] products, boolean print) {
+        Cart cart = new Cart(storage);
+        held = cart;
+        long t0 = System.nanoTime();
+        for (Product p : products) {
+            cart.addProduct(p);
+        }
+        for (int i = 0; i < products.length; i += 7) {
+            cart.setQuantity(i, 3);
+        }
+        long fill = System.nanoTime() - t0;
+        long footprint = usedHeap();
+
+        int reps = 2_000;
+        for (int i = 0; i < reps / 4; i++) sink = cart.getSubtotal();
+        long t1 = System.nanoTime();
+        for (int i = 0; i < reps; i++) sink = cart.getSubtotal();
+        long t2 = System.nanoTime();
+
+        double perCall = (t2 - t1) / (double) reps;
+        sink += cart.size();
+        // What the cart retains is what a GC frees once it is dropped
+        held = null;
+        cart = null;
+        footprint -= usedHeap();
+        if (print) {
+            System.out.printf("%-7s lines=%d fill=%.1f ms footprint=%.2f MB (%.0f B/line) subtotal=%.3f us%n",
+                    storage, products.length, fill / 1e6, footprint / 1048576.0, footprint / (double) products.length,
+                    perCall / 1e3);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
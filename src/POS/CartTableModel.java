@@ -1,20 +1,315 @@
 package POS;
 
 import javax.swing.table.AbstractTableModel;
-import java.util.List;
+import java.util.Arrays;
+
+/**
+ * Table Model
+ * Shows the cart lines, optionally grouped by category (food, drinks) with a subtotal
+ * header row per group, and sorted by insertion, name or line total.
+ * Maintained from cart events: each delta moves only the affected row (binary search
+ * into its group) and adjusts that group's header, instead of re-sorting the whole table.
+ * Table rows are therefore not cart indices; use {@link #cartIndexAt(int)}.
+ */
+public class CartTableModel extends AbstractTableModel implements CartListener {
+    // Line order within a group
+    public enum Order {
+        ADDED("Added"), NAME("Name"), TOTAL("Line total");
+
+        private final String label;
+
+        Order(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final String[] GROUP_NAMES = {"Food", "Drinks"};
+
+    // Cart indices of one group's lines in display order, plus running totals
+    private static final class Group {
+        int[] lines = new int[16];
+        int size;
+        long cents;
+        int quantity;
+    }
 
-// Table Model
-public class CartTableModel extends AbstractTableModel {
     private final Cart cart;
     private final String[] columns = {"Item", "Qty", "Price", "Total", "Action"};
+    private final Group[] groups = {new Group(), new Group()};
+    private Order order = Order.ADDED;
+    private boolean grouped;
+
+    // Quantity overrides typed into the table are logged here when set
+    private AuditLog audit;
+
+    // Sort keys per cart index, as of the last event; rows are found by these, not by the cart
+    private Product[] lineProduct = new Product[16];
+    private int[] lineQty = new int[16];
+    private int lineCount;
 
     public CartTableModel(Cart cart) {
         this.cart = cart;
+        for (int i = 0; i < cart.size(); i++) {
+            ensureCapacity(i + 1);
+            lineProduct[i] = cart.getProduct(i);
+            lineQty[i] = cart.getQuantity(i);
+            lineCount++;
+        }
+        rebuild();
+        cart.addListener(this);
+    }
+
+    public void setAuditLog(AuditLog audit) {
+        this.audit = audit;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        if (this.order == order) return;
+        this.order = order;
+        rebuild();
+        fireTableDataChanged();
+    }
+
+    public boolean isGrouped() {
+        return grouped;
+    }
+
+    public void setGrouped(boolean grouped) {
+        if (this.grouped == grouped) return;
+        this.grouped = grouped;
+        rebuild();
+        fireTableDataChanged();
+    }
+
+    // Cart index shown at a table row, or -1 for a group header
+    public int cartIndexAt(int row) {
+        for (int g = 0; g < groups.length; g++) {
+            Group group = groups[g];
+            if (hasHeader(group)) {
+                if (row == 0) return -1;
+                row--;
+            }
+            if (row < group.size) return group.lines[row];
+            row -= group.size;
+        }
+        return -1;
+    }
+
+    public boolean isHeader(int row) {
+        return row >= 0 && row < getRowCount() && cartIndexAt(row) < 0;
+    }
+
+    // Table row showing a cart line, or -1
+    public int rowOf(int cartIndex) {
+        if (cartIndex < 0 || cartIndex >= lineCount) return -1;
+        int g = groupOf(lineProduct[cartIndex]);
+        return firstLineRow(g) + find(groups[g], cartIndex);
+    }
+
+    // ---- Cart events ----
+
+    @Override
+    public void lineAdded(int index, CartItem item) {
+        ensureCapacity(lineCount + 1);
+        if (index < lineCount) {
+            // Not at the tail: make room and renumber the lines after it
+            System.arraycopy(lineProduct, index, lineProduct, index + 1, lineCount - index);
+            System.arraycopy(lineQty, index, lineQty, index + 1, lineCount - index);
+            renumber(index, 1);
+        }
+        lineProduct[index] = item.getProduct();
+        lineQty[index] = item.getQuantity();
+        lineCount++;
+        int g = groupOf(item.getProduct());
+        int row = firstLineRow(g) + attach(g, index);
+        fireInserted(g, row);
+    }
+
+    @Override
+    public void lineChanged(int index, CartItem item, int oldQuantity) {
+        int oldGroup = groupOf(lineProduct[index]);
+        int newGroup = groupOf(item.getProduct());
+        // Row positions are taken before detaching, while the group still has its header
+        int oldRow = firstLineRow(oldGroup);
+        oldRow += detach(oldGroup, index);
+        if (oldGroup != newGroup) fireDeleted(oldGroup, oldRow);
+        lineProduct[index] = item.getProduct();
+        lineQty[index] = item.getQuantity();
+        int newRow = firstLineRow(newGroup) + attach(newGroup, index);
+        if (oldGroup != newGroup) {
+            fireInserted(newGroup, newRow);
+        } else {
+            // Same group: one contiguous block of rows moved by at most one place each
+            fireTableRowsUpdated(Math.min(oldRow, newRow), Math.max(oldRow, newRow));
+            fireHeader(newGroup);
+        }
+    }
+
+    @Override
+    public void lineRemoved(int index, CartItem item) {
+        int g = groupOf(lineProduct[index]);
+        int row = firstLineRow(g);
+        row += detach(g, index);
+        lineCount--;
+        if (index < lineCount) {
+            System.arraycopy(lineProduct, index + 1, lineProduct, index, lineCount - index);
+            System.arraycopy(lineQty, index + 1, lineQty, index, lineCount - index);
+            renumber(index + 1, -1);
+        }
+        lineProduct[lineCount] = null;
+        fireDeleted(g, row);
+    }
+
+    // ---- Group maintenance ----
+
+    private int groupOf(Product p) {
+        return grouped && p instanceof DrinkItem ? 1 : 0;
+    }
+
+    private boolean hasHeader(Group group) {
+        return grouped && group.size > 0;
+    }
+
+    private int firstLineRow(int g) {
+        int row = 0;
+        for (int i = 0; i < g; i++) row += groups[i].size + (hasHeader(groups[i]) ? 1 : 0);
+        return hasHeader(groups[g]) ? row + 1 : row;
+    }
+
+    private long lineCents(int cartIndex) {
+        return CartSnapshot.cents(lineProduct[cartIndex].getPrice()) * lineQty[cartIndex];
+    }
+
+    // Total order over cart indices; ties fall back to insertion order
+    private int compare(int a, int b) {
+        int c = 0;
+        if (order == Order.NAME) {
+            c = lineProduct[a].getName().compareToIgnoreCase(lineProduct[b].getName());
+        } else if (order == Order.TOTAL) {
+            c = Long.compare(lineCents(b), lineCents(a));
+        }
+        return c != 0 ? c : Integer.compare(a, b);
     }
 
+    // Binary search; position if present, else -(insertion point) - 1
+    private int search(Group group, int cartIndex) {
+        int lo = 0, hi = group.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(group.lines[mid], cartIndex);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private int find(Group group, int cartIndex) {
+        int pos = search(group, cartIndex);
+        if (pos < 0) throw new IllegalStateException("Line " + cartIndex + " not in its group");
+        return pos;
+    }
+
+    // Inserts a line at its sorted position; returns the position within the group
+    private int attach(int g, int cartIndex) {
+        Group group = groups[g];
+        int pos = -search(group, cartIndex) - 1;
+        if (group.size == group.lines.length) group.lines = Arrays.copyOf(group.lines, group.size * 2);
+        System.arraycopy(group.lines, pos, group.lines, pos + 1, group.size - pos);
+        group.lines[pos] = cartIndex;
+        group.size++;
+        group.cents += lineCents(cartIndex);
+        group.quantity += lineQty[cartIndex];
+        return pos;
+    }
+
+    // Removes a line using its current sort keys; returns the position it had
+    private int detach(int g, int cartIndex) {
+        Group group = groups[g];
+        int pos = find(group, cartIndex);
+        System.arraycopy(group.lines, pos + 1, group.lines, pos, group.size - pos - 1);
+        group.size--;
+        group.cents -= lineCents(cartIndex);
+        group.quantity -= lineQty[cartIndex];
+        return pos;
+    }
+
+    // Shifts cart indices from 'from' up by delta; relative order is unchanged, so no re-sort
+    private void renumber(int from, int delta) {
+        for (Group group : groups) {
+            for (int i = 0; i < group.size; i++) {
+                if (group.lines[i] >= from) group.lines[i] += delta;
+            }
+        }
+    }
+
+    // Full re-sort, only when the order or grouping itself changes
+    private void rebuild() {
+        for (Group group : groups) {
+            group.size = 0;
+            group.cents = 0;
+            group.quantity = 0;
+        }
+        Integer[] all = new Integer[lineCount];
+        for (int i = 0; i < lineCount; i++) all[i] = i;
+        Arrays.sort(all, this::compare);
+        for (int ci : all) {
+            Group group = groups[groupOf(lineProduct[ci])];
+            if (group.size == group.lines.length) group.lines = Arrays.copyOf(group.lines, group.size * 2);
+            group.lines[group.size++] = ci;
+            group.cents += lineCents(ci);
+            group.quantity += lineQty[ci];
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= lineProduct.length) return;
+        int cap = Math.max(n, lineProduct.length * 2);
+        lineProduct = Arrays.copyOf(lineProduct, cap);
+        lineQty = Arrays.copyOf(lineQty, cap);
+    }
+
+    private void fireInserted(int g, int row) {
+        if (grouped && groups[g].size == 1) {
+            // First line of the group brings its header
+            fireTableRowsInserted(row - 1, row);
+        } else {
+            fireTableRowsInserted(row, row);
+            fireHeader(g);
+        }
+    }
+
+    private void fireDeleted(int g, int row) {
+        if (grouped && groups[g].size == 0) {
+            fireTableRowsDeleted(row - 1, row);
+        } else {
+            fireTableRowsDeleted(row, row);
+            fireHeader(g);
+        }
+    }
+
+    private void fireHeader(int g) {
+        if (!hasHeader(groups[g])) return;
+        int header = firstLineRow(g) - 1;
+        fireTableRowsUpdated(header, header);
+    }
+
+    // ---- TableModel ----
+
     @Override
     public int getRowCount() {
-        return cart.getItems().size();
+        int rows = 0;
+        for (Group group : groups) rows += group.size + (hasHeader(group) ? 1 : 0);
+        return rows;
     }
 
     @Override
@@ -30,17 +325,17 @@ public class CartTableModel extends AbstractTableModel {
     // Display
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        List<CartItem> items = cart.getItems();
-        CartItem ci = items.get(rowIndex);
+        int line = cartIndexAt(rowIndex);
+        if (line < 0) return headerValue(rowIndex, columnIndex);
         switch (columnIndex) {
             case 0:
-                return ci.getProduct().getName();
+                return cart.getProduct(line).getName();
             case 1:
-                return ci.getQuantity();
+                return cart.getQuantity(line);
             case 2:
-                return String.format("₱%.2f", ci.getProduct().getPrice());
+                return String.format("₱%.2f", cart.getProduct(line).getPrice());
             case 3:
-                return String.format("₱%.2f", ci.getTotalPrice());
+                return String.format("₱%.2f", cart.getLineTotal(line));
             case 4:
                 return "Remove";
             default:
@@ -48,28 +343,52 @@ public class CartTableModel extends AbstractTableModel {
         }
     }
 
+    private Object headerValue(int row, int column) {
+        int g = 0;
+        while (g < groups.length && !(hasHeader(groups[g]) && firstLineRow(g) - 1 == row)) g++;
+        if (g == groups.length) return "";
+        Group group = groups[g];
+        switch (column) {
+            case 0:
+                return GROUP_NAMES[g] + " (" + group.size + ")";
+            case 1:
+                return group.quantity;
+            case 3:
+                return String.format("₱%.2f", group.cents / 100.0);
+            default:
+                return "";
+        }
+    }
+
     @Override
     public boolean isCellEditable(int rowIndex, int columnIndex) {
         // Editable
-        return columnIndex == 1 || columnIndex == 4;
+        return (columnIndex == 1 || columnIndex == 4) && cartIndexAt(rowIndex) >= 0;
     }
 
     @Override
     public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-        List<CartItem> items = cart.getItems();
-        if (rowIndex < 0 || rowIndex >= items.size()) return;
-        CartItem ci = items.get(rowIndex);
+        int line = cartIndexAt(rowIndex);
+        if (line < 0 || line >= cart.size()) return;
+        Product product = cart.getProduct(line);
         if (columnIndex == 1) {
+            CartEditEvent ev = new CartEditEvent();
+            ev.begin();
             try {
                 int v = Integer.parseInt(aValue.toString());
-                if (v <= 0) {
-                    // Remove
-                    cart.removeProduct(ci.getProduct());
-                } else {
-                    ci.setQuantity(v);
-                }
-                fireTableDataChanged();
+                int before = cart.getQuantity(line);
+                // Zero or less removes the line; the row moves through the cart event
+                cart.setQuantity(line, v);
+                if (audit != null && v != before) audit.log(AuditLog.OVERRIDE, product.getId(), before, Math.max(v, 0), 0);
             } catch (NumberFormatException ignored) {}
+            if (ev.shouldCommit()) {
+                ev.product = product.getName();
+                ev.row = rowIndex;
+                ev.column = columnIndex;
+                ev.value = String.valueOf(aValue);
+                ev.cartSize = cart.size();
+                ev.commit();
+            }
         }
     }
 }
@@ -0,0 +1,118 @@
+package POS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One immutable version of the product catalog.
+ * A reload builds a complete new Catalog and swaps the reference, so readers always
+ * see either the old or the new version and never take a lock.
+ */
+public final class Catalog {
+    private final long version;
+    private final List<Product> products;
+    private final Map<Integer, Product> byId;
+
+    public Catalog(long version, List<Product> products) {
+        this.version = version;
+        this.products = Collections.unmodifiableList(new ArrayList<>(products));
+        this.byId = new HashMap<>(products.size() * 2);
+        for (Product p : products) byId.put(p.getId(), p);
+    }
+
+    // Next version sharing this one's index, with some products replaced in place (same ids)
+    private Catalog(long version, List<Product> products, Map<Integer, Product> byId) {
+        this.version = version;
+        this.products = Collections.unmodifiableList(products);
+        this.byId = byId;
+    }
+
+    /**
+     * Next version from a full product list that differs from this one only by the given
+     * replacements; cheaper than the public constructor for large catalogs. products must
+     * not be modified afterwards.
+     */
+    Catalog withChanges(long version, List<Product> products, List<Product> changed) {
+        Map<Integer, Product> index = new HashMap<>(byId);
+        for (Product p : changed) index.put(p.getId(), p);
+        return new Catalog(version, products, index);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Products in display order
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    // Product by id, or null
+    public Product get(int id) {
+        return byId.get(id);
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    // Products added, removed or changed (name, price or type) going from this version to next
+    public Diff diff(Catalog next) {
+        Diff d = new Diff();
+        for (Product p : next.products) {
+            Product old = byId.get(p.getId());
+            if (old == null) {
+                d.added.add(p);
+            } else if (!sameProduct(old, p)) {
+                d.changed.add(p);
+            }
+        }
+        for (Product p : products) {
+            if (next.get(p.getId()) == null) d.removed.add(p);
+        }
+        return d;
+    }
+
+    private static boolean sameProduct(Product a, Product b) {
+        return a.getClass() == b.getClass() && a.getName().equals(b.getName()) && a.getPrice() == b.getPrice();
+    }
+
+    // Changes between two catalog versions
+    public static final class Diff {
+        private final List<Product> added = new ArrayList<>();
+        private final List<Product> removed = new ArrayList<>();
+        private final List<Product> changed = new ArrayList<>();
+
+        // Diff of a version that only changed existing products
+        static Diff changedOnly(List<Product> changed) {
+            Diff d = new Diff();
+            d.changed.addAll(changed);
+            return d;
+        }
+
+        public List<Product> getAdded() {
+            return added;
+        }
+
+        public List<Product> getRemoved() {
+            return removed;
+        }
+
+        // New versions of changed products
+        public List<Product> getChanged() {
+            return changed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "+" + added.size() + " -" + removed.size() + " ~" + changed.size();
+        }
+    }
+}
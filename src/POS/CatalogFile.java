@@ -0,0 +1,72 @@
+package POS;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalog file: one product per line as "id,type,name,price", type FOOD or DRINK.
+ * A name may contain commas: the price is the field after the last one.
+ * Blank lines and lines starting with # are ignored.
+ */
+public final class CatalogFile {
+    private CatalogFile() {
+    }
+
+    public static List<Product> read(Path file) throws IOException {
+        List<Product> out = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split(",", 3);
+                int last = f.length == 3 ? f[2].lastIndexOf(',') : -1;
+                if (last < 0) throw new IOException(file + ":" + lineNo + ": expected id,type,name,price");
+                f = new String[]{f[0], f[1], f[2].substring(0, last), f[2].substring(last + 1)};
+                try {
+                    int id = Integer.parseInt(f[0].trim());
+                    String name = f[2].trim();
+                    double price = Double.parseDouble(f[3].trim());
+                    out.add(create(f[1].trim(), id, name, price));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return out;
+    }
+
+    public static void write(Path file, List<Product> products) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# id,type,name,price");
+            out.newLine();
+            for (Product p : products) {
+                out.write(p.getId() + "," + typeOf(p) + "," + p.getName() + "," + p.getPrice());
+                out.newLine();
+            }
+        }
+    }
+
+    static Product create(String type, int id, String name, double price) {
+        switch (type.toUpperCase()) {
+            case "FOOD":
+                return new FoodItem(id, name, price);
+            case "DRINK":
+                return new DrinkItem(id, name, price);
+            default:
+                throw new IllegalArgumentException("unknown product type " + type);
+        }
+    }
+
+    static String typeOf(Product p) {
+        return p instanceof DrinkItem ? "DRINK" : "FOOD";
+    }
+}
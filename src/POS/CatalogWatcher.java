@@ -0,0 +1,103 @@
+package POS;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reloads the catalog file when it changes.
+ * Parsing and diffing run on the watcher thread; the new version is swapped in with a
+ * single compare-and-set (retried if a repricing published first) and only the diff is
+ * handed to the EDT.
+ */
+public class CatalogWatcher implements AutoCloseable {
+    // Called on the EDT after a new version is live
+    public interface Listener {
+        void catalogChanged(Catalog old, Catalog current, Catalog.Diff diff);
+    }
+
+    // Editors write files in several steps; wait for this much quiet before reloading
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path file;
+    private final AtomicReference<Catalog> current;
+    private final Listener listener;
+    private final WatchService watch;
+    private final Thread thread;
+
+    public CatalogWatcher(Path file, AtomicReference<Catalog> current, Listener listener) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.current = current;
+        this.listener = listener;
+        this.watch = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watch, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "Catalog-Watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watch.take();
+                boolean ours = false;
+                // Drain follow-up events until the file settles
+                while (key != null) {
+                    for (WatchEvent<?> ev : key.pollEvents()) {
+                        Object ctx = ev.context();
+                        if (ctx instanceof Path && file.getFileName().equals(ctx)) ours = true;
+                    }
+                    key.reset();
+                    key = watch.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (ours) reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Loads the file as a new catalog version and publishes it. Returns the diff, or null on error
+     * (the current version then stays live).
+     */
+    public Catalog.Diff reload() {
+        List<Product> products;
+        try {
+            products = CatalogFile.read(file);
+        } catch (IOException e) {
+            System.err.println("Catalog reload failed, keeping version " + current.get().getVersion() + ": " + e.getMessage());
+            return null;
+        }
+        // A repricing may publish meanwhile; then diff against that version and try again
+        while (true) {
+            Catalog old = current.get();
+            Catalog next = new Catalog(old.getVersion() + 1, products);
+            Catalog.Diff diff = old.diff(next);
+            if (diff.isEmpty()) return diff;
+            if (current.compareAndSet(old, next)) {
+                SwingUtilities.invokeLater(() -> listener.catalogChanged(old, next, diff));
+                return diff;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watch.close();
+        thread.interrupt();
+    }
+}
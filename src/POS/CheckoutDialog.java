@@ -5,16 +5,23 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.io.UncheckedIOException;
 
 // Checkout
 public class CheckoutDialog extends JDialog {
-    private final Cart cart;
+    // Immutable view of the order; the live cart is never read here
+    private final CartSnapshot order;
     private final double taxRate;
+    private final CheckoutPipeline pipeline;
+    // Loyalty member the order is for, or null
+    private final LoyaltyMembers.Member member;
 
-    public CheckoutDialog(Frame owner, Cart cart, double taxRate) {
+    public CheckoutDialog(Frame owner, CartSnapshot order, double taxRate, CheckoutPipeline pipeline) {
         super(owner, "Checkout", true);
-        this.cart = cart;
+        this.order = order;
+        this.pipeline = pipeline;
         this.taxRate = taxRate;
+        this.member = order.getMember();
         initUI();
         setLocationRelativeTo(owner);
     }
@@ -24,14 +31,14 @@ public class CheckoutDialog extends JDialog {
 
         // header
         JPanel header = new JPanel() {
+            private final CachedLayer layer = new CachedLayer(true, (g2, w, h) -> {
+                g2.setPaint(RenderQuality.get().paint(0, 0, new Color(90, 140, 200), w, 0, new Color(140, 190, 240)));
+                g2.fillRect(0, 0, w, h);
+            });
+
             @Override
             protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                int w = getWidth();
-                int h = getHeight();
-                g2.setPaint(new GradientPaint(0, 0, new Color(90, 140, 200), w, 0, new Color(140, 190, 240)));
-                g2.fillRect(0, 0, w, h);
+                layer.paint(this, g);
             }
         };
         header.setPreferredSize(new Dimension(0, 64));
@@ -40,6 +47,14 @@ public class CheckoutDialog extends JDialog {
         title.setForeground(Color.white);
         title.setFont(title.getFont().deriveFont(Font.BOLD, 18f));
         header.add(title, BorderLayout.CENTER);
+        if (member != null) {
+            JLabel who = new JLabel(String.format("Member: %s · %,d points · earns %,d", member,
+                    member.getPoints(), member.pointsFor(order.getSubtotal() * (1 + taxRate))), SwingConstants.CENTER);
+            who.setForeground(Color.white);
+            who.setFont(who.getFont().deriveFont(Font.PLAIN, 12f));
+            who.setBorder(BorderFactory.createEmptyBorder(0, 0, 6, 0));
+            header.add(who, BorderLayout.SOUTH);
+        }
         add(header, BorderLayout.NORTH);
 
         // center
@@ -54,8 +69,8 @@ public class CheckoutDialog extends JDialog {
         center.add(scroll, BorderLayout.CENTER);
 
         // build data
-        java.util.List<CartItem> items = cart.getItems();
-        double subtotal = cart.getSubtotal();
+        CartSnapshot items = order;
+        double subtotal = order.getSubtotal();
         double tax = subtotal * taxRate;
         double total = subtotal + tax;
 
@@ -79,7 +94,7 @@ public class CheckoutDialog extends JDialog {
         } else {
             // Add rows
             for (int i = 0; i < items.size(); i++) {
-                CartItem ci = items.get(i);
+                CartSnapshot.Line ci = items.get(i);
                 JPanel row = createItemRow(ci, i);
                 itemsPanel.add(row);
                 // register icon
@@ -148,10 +163,13 @@ public class CheckoutDialog extends JDialog {
             @Override
             public void actionPerformed(ActionEvent e) {
                 // empty guard
-                if (cart.getItems().isEmpty()) {
+                if (order.isEmpty()) {
                     showStyledInfo("Empty Cart", "You did not select any product to buy");
                     return;
                 }
+                // JFR event spans the whole confirm flow
+                CheckoutEvent jfr = new CheckoutEvent();
+                jfr.begin();
                 confirm.setEnabled(false);
                 close.setEnabled(false);
                 // processing label
@@ -171,6 +189,18 @@ public class CheckoutDialog extends JDialog {
                 // finish
                 new Timer(2000, ev2 -> {
                     t.stop();
+                    ((Timer) ev2.getSource()).stop();
+                    // hand the order to the post-checkout stages
+                    long orderNo;
+                    try {
+                        orderNo = pipeline.confirm(order);
+                    } catch (UncheckedIOException ex) {
+                        // No receipt number could be reserved; the sale is not confirmed
+                        proc.setText("Could not confirm: " + ex.getCause().getMessage());
+                        confirm.setEnabled(true);
+                        close.setEnabled(true);
+                        return;
+                    }
                     // success
                     center.removeAll();
                     JPanel okp = new JPanel(new BorderLayout());
@@ -178,7 +208,9 @@ public class CheckoutDialog extends JDialog {
                     JLabel check = new JLabel("✔", SwingConstants.CENTER);
                     check.setFont(check.getFont().deriveFont(Font.BOLD, 48f));
                     check.setForeground(new Color(40,160,60));
-                    JLabel msg = new JLabel("Payment complete", SwingConstants.CENTER);
+                    String earned = member == null ? ""
+                            : " - " + member.pointsFor(order.getSubtotal() * (1 + taxRate)) + " points";
+                    JLabel msg = new JLabel("Payment complete - Order #" + orderNo + earned, SwingConstants.CENTER);
                     msg.setFont(msg.getFont().deriveFont(Font.BOLD, 16f));
                     okp.add(check, BorderLayout.CENTER);
                     okp.add(msg, BorderLayout.SOUTH);
@@ -188,7 +220,17 @@ public class CheckoutDialog extends JDialog {
                     // done
                     close.setText("Done");
                     close.setEnabled(true);
-                    ((Timer) ev2.getSource()).stop();
+                    if (jfr.shouldCommit()) {
+                        StringBuilder sb = new StringBuilder();
+                        for (CartSnapshot.Line ci : order) {
+                            if (sb.length() > 0) sb.append(", ");
+                            sb.append(ci.getProduct().getName()).append(" x").append(ci.getQuantity());
+                        }
+                        jfr.cartSize = order.size();
+                        jfr.products = sb.toString();
+                        jfr.total = order.getSubtotal() * (1 + taxRate);
+                        jfr.commit();
+                    }
                 }).start();
             }
         });
@@ -201,7 +243,7 @@ public class CheckoutDialog extends JDialog {
     }
 
     // row
-    private JPanel createItemRow(CartItem ci, int idx) {
+    private JPanel createItemRow(CartSnapshot.Line ci, int idx) {
         String name = ci.getProduct().getName();
         int qty = ci.getQuantity();
         double total = ci.getTotalPrice();
@@ -242,9 +284,11 @@ public class CheckoutDialog extends JDialog {
     // icon
     // draw
     private BufferedImage drawReceiptImage(String name, int w, int h, float phase) {
+        IconRenderEvent ev = new IconRenderEvent();
+        ev.begin();
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = img.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        RenderQuality.get().hints(g);
         g.setColor(new Color(0,0,0,0));
         g.fillRect(0,0,w,h);
         String lower = name.toLowerCase();
@@ -278,6 +322,13 @@ public class CheckoutDialog extends JDialog {
             g.fillOval(4, 6, w-8, h-12);
         }
         g.dispose();
+        if (ev.shouldCommit()) {
+            ev.product = name;
+            ev.source = "CheckoutDialog.drawReceiptImage";
+            ev.width = w;
+            ev.height = h;
+            ev.commit();
+        }
         return img;
     }
 
@@ -288,13 +339,14 @@ public class CheckoutDialog extends JDialog {
 
         // small header
         JPanel head = new JPanel() {
+            private final CachedLayer layer = new CachedLayer(true, (g2, w, h) -> {
+                g2.setPaint(RenderQuality.get().paint(0, 0, new Color(100,130,170), w, 0, new Color(150,190,220)));
+                g2.fillRect(0, 0, w, h);
+            });
+
             @Override
             protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                int w = getWidth();
-                g2.setPaint(new GradientPaint(0, 0, new Color(100,130,170), w, 0, new Color(150,190,220)));
-                g2.fillRect(0, 0, w, getHeight());
+                layer.paint(this, g);
             }
         };
         head.setPreferredSize(new Dimension(0, 36));
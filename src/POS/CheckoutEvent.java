@@ -0,0 +1,23 @@
+package POS;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR: checkout confirm flow, from the Confirm click to payment complete
+@Name("POS.Checkout")
+@Label("Checkout")
+@Category({"POS", "Checkout"})
+@Description("CheckoutDialog confirm flow")
+class CheckoutEvent extends jdk.jfr.Event {
+    @Label("Cart Size")
+    int cartSize;
+
+    @Label("Products")
+    @Description("Comma separated product names with quantities")
+    String products;
+
+    @Label("Total")
+    double total;
+}
@@ -0,0 +1,6 @@
+package POS;
+
+// Notified once per confirmed sale, on the thread that confirmed it
+public interface CheckoutListener {
+    void checkoutConfirmed(long orderNo, CartSnapshot order);
+}
@@ -0,0 +1,52 @@
+package POS;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stages run after a sale is confirmed (order routing, history, journal ...).
+ * Used by CheckoutDialog and by headless drivers that need the same code path.
+ * Order numbers come from a {@link ReceiptNumbers} file when given, so they stay unique
+ * across restarts and lanes; otherwise from an in-memory counter starting at 1.
+ */
+public class CheckoutPipeline {
+    private final List<CheckoutListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong orderNumbers = new AtomicLong();
+    private final ReceiptNumbers receipts;
+
+    public CheckoutPipeline() {
+        this(null);
+    }
+
+    public CheckoutPipeline(ReceiptNumbers receipts) {
+        this.receipts = receipts;
+    }
+
+    public void addListener(CheckoutListener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(CheckoutListener l) {
+        listeners.remove(l);
+    }
+
+    /**
+     * Confirms the order and returns its order number.
+     * Throws UncheckedIOException (and confirms nothing) when no receipt number could be reserved.
+     */
+    public long confirm(CartSnapshot order) {
+        long orderNo;
+        try {
+            orderNo = receipts != null ? receipts.next() : orderNumbers.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (CheckoutListener l : listeners) {
+            l.checkoutConfirmed(orderNo, order);
+        }
+        return orderNo;
+    }
+}
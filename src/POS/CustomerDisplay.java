@@ -0,0 +1,175 @@
+package POS;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Customer-facing second window mirroring the cart lines and the totals.
+ * Driven by cart events: each event repaints only the affected rows and the amounts
+ * whose text changed, never the whole list. Opens on the second screen when there is one.
+ */
+public class CustomerDisplay extends JFrame implements CartListener {
+    private static final int ROW_H = 40;
+    private static final Color EVEN = new Color(250, 250, 255);
+    private static final Color ODD = new Color(245, 245, 245);
+
+    private final Cart cart;
+    private final double taxRate;
+    private final LinesView lines = new LinesView();
+    private final TotalsView totals = new TotalsView();
+
+    public CustomerDisplay(Cart cart, double taxRate) {
+        super("Your Order");
+        this.cart = cart;
+        this.taxRate = taxRate;
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JLabel head = new JLabel("Your Order", SwingConstants.CENTER);
+        head.setFont(head.getFont().deriveFont(Font.BOLD, 22f));
+        head.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        add(head, BorderLayout.NORTH);
+
+        JScrollPane scroll = new JScrollPane(lines);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        // Blit on scroll instead of repainting the viewport
+        scroll.getViewport().setScrollMode(JViewport.BLIT_SCROLL_MODE);
+        add(scroll, BorderLayout.CENTER);
+        add(totals, BorderLayout.SOUTH);
+        setSize(480, 600);
+    }
+
+    /**
+     * Opens the display, on the second screen if there is one, and subscribes it to the cart.
+     */
+    public static CustomerDisplay open(Cart cart, double taxRate) {
+        CustomerDisplay d = new CustomerDisplay(cart, taxRate);
+        GraphicsDevice[] screens = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+        if (screens.length > 1) {
+            d.setBounds(screens[1].getDefaultConfiguration().getBounds());
+        } else {
+            d.setLocationByPlatform(true);
+        }
+        cart.addListener(d);
+        d.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                cart.removeListener(d);
+            }
+        });
+        d.lines.resize();
+        d.totals.update();
+        d.setVisible(true);
+        return d;
+    }
+
+    @Override
+    public void lineAdded(int index, CartItem item) {
+        lines.resize();
+        lines.repaintRows(index, cart.size() - 1);
+        lines.scrollRectToVisible(new Rectangle(0, index * ROW_H, 1, ROW_H));
+        totals.update();
+    }
+
+    @Override
+    public void lineChanged(int index, CartItem item, int oldQuantity) {
+        lines.repaintRows(index, index);
+        totals.update();
+    }
+
+    @Override
+    public void lineRemoved(int index, CartItem item) {
+        // Rows below shift up; the old last row is now empty
+        lines.repaintRows(index, cart.size());
+        lines.resize();
+        totals.update();
+    }
+
+    // Cart lines, painted from the cart within the clip only
+    private class LinesView extends JComponent {
+        LinesView() {
+            setOpaque(true);
+            setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 18));
+        }
+
+        void resize() {
+            int h = cart.size() * ROW_H;
+            if (getPreferredSize().height != h) {
+                setPreferredSize(new Dimension(0, h));
+                revalidate();
+            }
+        }
+
+        void repaintRows(int first, int last) {
+            repaint(0, first * ROW_H, getWidth(), (last - first + 1) * ROW_H);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+            g.setColor(Color.white);
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            int first = Math.max(0, clip.y / ROW_H);
+            int last = Math.min(cart.size() - 1, (clip.y + clip.height) / ROW_H);
+            FontMetrics fm = g.getFontMetrics();
+            int w = getWidth();
+            for (int i = first; i <= last; i++) {
+                int y = i * ROW_H;
+                g.setColor(i % 2 == 0 ? EVEN : ODD);
+                g.fillRect(0, y, w, ROW_H);
+                int base = y + (ROW_H + fm.getAscent()) / 2 - 3;
+                g.setColor(new Color(40, 40, 40));
+                g.drawString(cart.getQuantity(i) + " x " + cart.getProduct(i).getName(), 16, base);
+                String amt = String.format("₱%.2f", cart.getLineTotal(i));
+                g.drawString(amt, w - 16 - fm.stringWidth(amt), base);
+            }
+        }
+    }
+
+    // Subtotal, tax and total; repaints only the amounts that changed
+    private class TotalsView extends JComponent {
+        private final String[] labels = {"Subtotal", "Tax", "Total"};
+        private final String[] shown = {"", "", ""};
+
+        TotalsView() {
+            setOpaque(true);
+            setFont(new Font(Font.SANS_SERIF, Font.BOLD, 20));
+            setPreferredSize(new Dimension(0, 3 * ROW_H + 16));
+        }
+
+        void update() {
+            double subtotal = cart.snapshot().getSubtotal();
+            double tax = subtotal * taxRate;
+            String[] next = {
+                    String.format("₱%.2f", subtotal),
+                    String.format("₱%.2f", tax),
+                    String.format("₱%.2f", subtotal + tax)};
+            for (int i = 0; i < next.length; i++) {
+                if (!next[i].equals(shown[i])) {
+                    shown[i] = next[i];
+                    repaint(0, 8 + i * ROW_H, getWidth(), ROW_H);
+                }
+            }
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+            g.setColor(new Color(240, 255, 245));
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            FontMetrics fm = g.getFontMetrics();
+            int w = getWidth();
+            for (int i = 0; i < labels.length; i++) {
+                int y = 8 + i * ROW_H;
+                if (y + ROW_H < clip.y || y > clip.y + clip.height) continue;
+                int base = y + (ROW_H + fm.getAscent()) / 2 - 3;
+                g.setColor(new Color(60, 60, 70));
+                g.drawString(labels[i], 16, base);
+                g.drawString(shown[i], w - 16 - fm.stringWidth(shown[i]), base);
+            }
+        }
+    }
+}
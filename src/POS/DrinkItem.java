@@ -1,7 +1,7 @@
 package POS;
 
 public class DrinkItem extends Product {
-    public DrinkItem(String name, double price) {
-        super(name, price);
+    public DrinkItem(int id, String name, double price) {
+        super(id, name, price);
     }
 }
@@ -0,0 +1,274 @@
+package POS;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Watchdog for the Swing event dispatch thread (EDT).
+ * An event queue pushed on top of the system queue stamps the start of every dispatch,
+ * and a daemon thread samples that stamp. When one event runs longer than the threshold,
+ * the EDT stack is captured and kept in a fixed-size ring buffer of stalls.
+ * A healthy EDT only pays for two clock reads and a few volatile writes per event.
+ */
+public class EdtWatchdog {
+    private static volatile EdtWatchdog installed;
+
+    private final long thresholdNanos;
+    private final long pollMillis;
+
+    // Ring buffer of captured stalls
+    private final Stall[] ring;
+    private int next = 0;
+    private long stallCount = 0;
+
+    // Dispatch state, written by the EDT and sampled by the watchdog thread
+    private volatile long dispatchSeq = 0;
+    private volatile long dispatchStart = 0;
+    private volatile AWTEvent currentEvent;
+    private volatile Thread edt;
+
+    // Sequence number of the dispatch already captured, so each stall is recorded once
+    private volatile long capturedSeq = -1;
+
+    // Last captured stall not yet printed; watchdog thread only
+    private Stall unreported;
+
+    /**
+     * A single captured stall.
+     */
+    public static final class Stall {
+        private final long seq;
+        private final long startMillis;
+        private final String event;
+        private final String executing;
+        private final StackTraceElement[] stack;
+        private volatile long durationNanos = -1;
+
+        Stall(long seq, long startMillis, String event, String executing, StackTraceElement[] stack) {
+            this.seq = seq;
+            this.startMillis = startMillis;
+            this.event = event;
+            this.executing = executing;
+            this.stack = stack;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        // Event description (source and type)
+        public String getEvent() {
+            return event;
+        }
+
+        // Best guess of the code that was running, e.g. "Main.drawProductImage"
+        public String getExecuting() {
+            return executing;
+        }
+
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+
+        // -1 while the event is still running
+        public long getDurationMillis() {
+            long d = durationNanos;
+            return d < 0 ? -1 : d / 1_000_000L;
+        }
+
+        @Override
+        public String toString() {
+            long d = getDurationMillis();
+            return "EDT stall " + (d < 0 ? "(running)" : d + " ms") + " in " + executing + " during " + event;
+        }
+    }
+
+    private EdtWatchdog(long thresholdMillis, int capacity) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.pollMillis = Math.max(10L, thresholdMillis / 4);
+        this.ring = new Stall[Math.max(1, capacity)];
+    }
+
+    /**
+     * Installs the watchdog on the system event queue.
+     * Calling this more than once returns the already installed instance.
+     */
+    public static synchronized EdtWatchdog install(long thresholdMillis, int capacity) {
+        if (installed != null) return installed;
+        EdtWatchdog w = new EdtWatchdog(thresholdMillis, capacity);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(w.new WatchedQueue());
+        Thread t = new Thread(w::run, "EDT-Watchdog");
+        t.setDaemon(true);
+        t.start();
+        installed = w;
+        return w;
+    }
+
+    // Installed instance, or null
+    public static EdtWatchdog get() {
+        return installed;
+    }
+
+    private class WatchedQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            if (edt == null) edt = Thread.currentThread();
+            long now = System.nanoTime();
+            // Non-null when a modal dialog dispatches from inside another event
+            AWTEvent outer = currentEvent;
+            if (outer != null) endSegment(now);
+            beginSegment(event, now);
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long end = System.nanoTime();
+                endSegment(end);
+                if (outer != null) {
+                    // Back in the outer event: watch the rest of it, timed from here, since
+                    // the time spent in the dialog was not its own. If the dialog's loop goes
+                    // on to wait for its next event instead, getNextEvent() pauses the clock.
+                    beginSegment(outer, end);
+                } else {
+                    dispatchStart = 0;
+                    currentEvent = null;
+                }
+            }
+        }
+
+        // A modal dialog's loop waiting for input is idle, not a stall of the event that opened it
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException {
+            if (dispatchStart != 0) {
+                endSegment(System.nanoTime());
+                dispatchStart = 0;
+            }
+            return super.getNextEvent();
+        }
+    }
+
+    // EDT only: the watched stretch of an event starts
+    private void beginSegment(AWTEvent event, long start) {
+        currentEvent = event;
+        dispatchSeq = dispatchSeq + 1;
+        dispatchStart = start;
+    }
+
+    // EDT only: the watched stretch ends; a stall captured in it gets its duration
+    private void endSegment(long end) {
+        long start = dispatchStart;
+        if (start != 0 && capturedSeq == dispatchSeq) finish(end - start);
+    }
+
+    // Watchdog thread loop
+    private void run() {
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            report(false);
+            long start = dispatchStart;
+            long seq = dispatchSeq;
+            Thread t = edt;
+            if (start == 0 || t == null || seq == capturedSeq) continue;
+            long elapsed = System.nanoTime() - start;
+            if (elapsed < thresholdNanos) continue;
+            AWTEvent ev = currentEvent;
+            StackTraceElement[] stack = t.getStackTrace();
+            // The event may have finished while the stack was taken
+            if (dispatchSeq != seq || dispatchStart != start) continue;
+            capture(new Stall(seq, System.currentTimeMillis() - elapsed / 1_000_000L,
+                    describeEvent(ev), describeStack(stack), stack));
+        }
+    }
+
+    private void capture(Stall s) {
+        report(true);
+        synchronized (this) {
+            ring[next] = s;
+            next = (next + 1) % ring.length;
+            stallCount++;
+            capturedSeq = s.seq;
+        }
+        unreported = s;
+    }
+
+    // Watchdog thread: prints the last stall once it has ended (or now, if another replaces it),
+    // so the EDT never waits on the console
+    private void report(boolean now) {
+        Stall s = unreported;
+        if (s == null || (!now && s.durationNanos < 0)) return;
+        unreported = null;
+        System.err.println(s);
+    }
+
+    private synchronized void finish(long durationNanos) {
+        Stall last = ring[(next - 1 + ring.length) % ring.length];
+        if (last != null && last.seq == capturedSeq) last.durationNanos = durationNanos;
+    }
+
+    // Stalls in the ring, oldest first
+    public synchronized List<Stall> getStalls() {
+        List<Stall> out = new ArrayList<>(ring.length);
+        for (int i = 0; i < ring.length; i++) {
+            Stall s = ring[(next + i) % ring.length];
+            if (s != null) out.add(s);
+        }
+        return out;
+    }
+
+    // Total stalls seen since install, including those overwritten in the ring
+    public synchronized long getStallCount() {
+        return stallCount;
+    }
+
+    // Print every stall in the ring with its captured stack
+    public void dump(PrintStream out) {
+        for (Stall s : getStalls()) {
+            out.println(s);
+            for (StackTraceElement e : s.stack) {
+                out.println("\tat " + e);
+            }
+        }
+    }
+
+    private static String describeEvent(AWTEvent ev) {
+        if (ev == null) return "unknown event";
+        if (ev instanceof InvocationEvent) return "invokeLater/Timer task";
+        String src = ev.getSource() != null ? ev.getSource().getClass().getName() : "null";
+        return ev.getClass().getSimpleName() + "(" + ev.getID() + ") on " + src;
+    }
+
+    // Names the innermost application frame, tagged with the Swing phase it ran under
+    static String describeStack(StackTraceElement[] stack) {
+        String app = null;
+        String phase = null;
+        for (StackTraceElement e : stack) {
+            String cls = e.getClassName();
+            String m = e.getMethodName();
+            if (app == null && cls.startsWith("POS.") && !cls.startsWith("POS.EdtWatchdog")) {
+                String simple = cls.substring(4);
+                int lambda = m.indexOf("lambda$");
+                app = simple + "." + (lambda >= 0 ? m.substring(lambda) : m);
+            }
+            if (phase == null) {
+                if (m.equals("doLayout") || m.equals("validateTree") || m.equals("layoutContainer")) {
+                    phase = "layout";
+                } else if (m.equals("paintComponent") || m.equals("paintDirtyRegions") || m.equals("paintImmediately")) {
+                    phase = "paint";
+                }
+            }
+        }
+        if (app == null && phase == null && stack.length > 0) {
+            return stack[0].getClassName() + "." + stack[0].getMethodName();
+        }
+        if (app == null) return phase;
+        return phase == null ? app : app + " (" + phase + ")";
+    }
+}
@@ -1,7 +1,7 @@
 package POS;
 
 public class FoodItem extends Product {
-    public FoodItem(String name, double price) {
-        super(name, price);
+    public FoodItem(int id, String name, double price) {
+        super(id, name, price);
     }
 }
@@ -0,0 +1,28 @@
+package POS;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR: product icon drawn into an image
+@Name("POS.IconRender")
+@Label("Icon Render")
+@Category({"POS", "Render"})
+@Description("Product and receipt icon rendering")
+@StackTrace(false)
+class IconRenderEvent extends jdk.jfr.Event {
+    @Label("Product")
+    String product;
+
+    @Label("Source")
+    @Description("Method that drew the icon")
+    String source;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+}
@@ -0,0 +1,115 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Append latency of a {@link SalesJournal} as one file and in segments with and without
+ * background compression (sales spread over simulated days), then the disk used, how many
+ * segments a one-day time scan opens, and a full re-read of the segmented journal by offset
+ * as the shipper does it.
+ *
+ * Usage: java -cp out/production/POS POS.JournalBenchmark [orders] [segmentKB] [days]
+ */
+public class JournalBenchmark {
+    private static final long DAY = 24 * 3_600_000L;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long segmentBytes = (args.length > 1 ? Long.parseLong(args[1]) : 1_024) * 1024;
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        List<CartSnapshot> baskets = new ArrayList<>();
+        Random rnd = new Random(7);
+        for (int b = 0; b < 64; b++) {
+            Cart cart = new Cart();
+            int n = 1 + rnd.nextInt(8);
+            for (int i = 0; i < n; i++) {
+                int id = 1 + rnd.nextInt(200);
+                cart.addProduct(id % 3 == 0 ? new DrinkItem(id, "Drink" + id, 1.5) : new FoodItem(id, "Food" + id, 3.25));
+            }
+            baskets.add(cart.snapshot());
+        }
+        long start = System.currentTimeMillis() - days * DAY;
+
+        System.out.printf("%-22s %10s %10s %10s %10s %12s %9s%n", "journal", "p50 ns", "p99 ns", "p99.9 ns", "max ns",
+                "disk KB", "segments");
+        Path root = Files.createTempDirectory("pos-journal");
+        try {
+            Path single = root.resolve("single.journal");
+            try (SalesJournal j = SalesJournal.open(single, false)) {
+                report("single file", run(j, orders, baskets, start, days), Files.size(single), 1);
+            }
+            for (boolean compress : new boolean[]{false, true}) {
+                Path dir = root.resolve(compress ? "gzip" : "plain");
+                try (SalesJournal j = SalesJournal.openSegmented(dir, false,
+                        new SalesJournal.Policy(segmentBytes, compress, 0, 0))) {
+                    LatencyHistogram h = run(j, orders, baskets, start, days);
+                    // Let the compressor catch up before measuring the disk
+                    while (compress && packedCount(dir) < j.getSegmentCount() - 1) Thread.sleep(50);
+                    report(compress ? "segments, gzip" : "segments", h, j.getDiskBytes(), j.getSegmentCount());
+                }
+            }
+
+            // Reopen the compressed journal: a time scan and a full sequential read
+            try (SalesJournal j = SalesJournal.openSegmented(root.resolve("gzip"), false,
+                    new SalesJournal.Policy(segmentBytes, true, 0, 0))) {
+                long from = start + (days / 2) * DAY;
+                int[] found = new int[1];
+                long t0 = System.nanoTime();
+                int opened = j.scan(from, from + DAY - 1, r -> found[0]++);
+                long scanNanos = System.nanoTime() - t0;
+                System.out.printf("one-day scan: %d records from %d of %d segments in %.1f ms%n",
+                        found[0], opened, j.getSegmentCount(), scanNanos / 1e6);
+
+                ByteBuffer buf = ByteBuffer.allocate(256 * 1024);
+                long offset = j.getStart();
+                int[] records = new int[1];
+                t0 = System.nanoTime();
+                while (offset < j.getEnd()) {
+                    buf = j.read(offset, buf);
+                    int n = buf.remaining();
+                    SalesJournal.decode(buf, offset, r -> records[0]++);
+                    offset += n;
+                }
+                System.out.printf("sequential read: %d records in %.1f ms%n", records[0], (System.nanoTime() - t0) / 1e6);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(root)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    // Appends orders spread evenly over the days, timing each append
+    private static LatencyHistogram run(SalesJournal j, int orders, List<CartSnapshot> baskets, long start, int days)
+            throws IOException {
+        LatencyHistogram h = new LatencyHistogram();
+        long step = days * DAY / orders;
+        for (int i = 0; i < orders; i++) {
+            CartSnapshot basket = baskets.get(i & (baskets.size() - 1));
+            long t0 = System.nanoTime();
+            j.append(i + 1, start + i * step, basket);
+            h.record(System.nanoTime() - t0);
+        }
+        return h;
+    }
+
+    private static long packedCount(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".gz")).count();
+        }
+    }
+
+    private static void report(String name, LatencyHistogram h, long diskBytes, int segments) {
+        System.out.printf("%-22s %10d %10d %10d %10d %12d %9d%n", name, h.percentile(0.5), h.percentile(0.99),
+                h.percentile(0.999), h.max(), diskBytes / 1024, segments);
+    }
+}
@@ -0,0 +1,190 @@
+package POS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Streams a terminal's {@link SalesJournal} to the {@link StoreAggregator}.
+ * On connect the aggregator answers with the offset it already holds for this terminal,
+ * and shipping resumes from there, so nothing is lost or sent twice across disconnects or
+ * restarts of either side. Records are shipped in batches of up to 256 KB, deflated, and
+ * each batch waits for its acknowledgement (the aggregator's new end offset).
+ * While the link is down the lane keeps selling into the journal; the shipper retries
+ * with backoff and catches up in large batches.
+ * Shipping stops for good (see {@link #getFailure}) when retrying cannot help: the aggregator
+ * refuses a batch as corrupt, or holds an offset the local journal no longer has.
+ */
+public class JournalShipper implements AutoCloseable {
+    private static final int BATCH_BYTES = 256 * 1024;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final SalesJournal journal;
+    private final String terminalId;
+    private final InetSocketAddress aggregator;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Socket socket;
+
+    // Offset the aggregator has acknowledged, -1 until the first handshake
+    private volatile long acked = -1;
+
+    // Why shipping stopped, or null
+    private volatile String failure;
+
+    // Statistics
+    private volatile long batches;
+    private volatile long rawBytes;
+    private volatile long shippedBytes;
+    private volatile int reconnects;
+
+    public JournalShipper(SalesJournal journal, String terminalId, InetSocketAddress aggregator) {
+        this.journal = journal;
+        this.terminalId = terminalId;
+        this.aggregator = aggregator;
+        this.thread = new Thread(this::run, "Journal-Shipper-" + terminalId);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        long backoff = 100;
+        ByteBuffer batch = ByteBuffer.allocate(BATCH_BYTES);
+        byte[] packed = new byte[BATCH_BYTES];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        while (running) {
+            try (Socket s = new Socket()) {
+                s.connect(aggregator, 2_000);
+                s.setTcpNoDelay(true);
+                socket = s;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                out.writeInt(StoreAggregator.MAGIC);
+                out.writeUTF(terminalId);
+                out.flush();
+                long offset = in.readLong();
+                if (offset > journal.getEnd()) {
+                    fail("aggregator holds " + offset + " bytes but the local journal ends at "
+                            + journal.getEnd() + "; was the journal replaced?");
+                    break;
+                }
+                acked = offset;
+                backoff = 100;
+                while (running) {
+                    if (offset < journal.getStart()) {
+                        fail("aggregator needs offset " + offset + " but the local journal starts at "
+                                + journal.getStart() + " (deleted by retention)");
+                        break;
+                    }
+                    if (journal.awaitEnd(offset, 500) <= offset) continue;
+                    batch = journal.read(offset, batch);
+                    int raw = batch.remaining();
+                    deflater.reset();
+                    deflater.setInput(batch.array(), 0, raw);
+                    deflater.finish();
+                    int packedLen = 0;
+                    while (!deflater.finished()) {
+                        if (packedLen == packed.length) packed = Arrays.copyOf(packed, packed.length * 2);
+                        packedLen += deflater.deflate(packed, packedLen, packed.length - packedLen);
+                    }
+                    out.writeByte(StoreAggregator.BATCH);
+                    out.writeLong(offset);
+                    out.writeInt(raw);
+                    out.writeInt(packedLen);
+                    out.write(packed, 0, packedLen);
+                    out.flush();
+                    // The answer is the aggregator's end: our next offset, also after a gap or duplicate
+                    long end = in.readLong();
+                    if (end == StoreAggregator.REFUSED) {
+                        fail("aggregator refused the " + raw + " bytes at offset " + offset + ": " + in.readUTF());
+                        break;
+                    }
+                    offset = end;
+                    acked = offset;
+                    batches++;
+                    rawBytes += raw;
+                    shippedBytes += packedLen;
+                }
+            } catch (IOException e) {
+                if (!running) break;
+                reconnects++;
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                socket = null;
+            }
+        }
+        deflater.end();
+    }
+
+    // Stops shipping; the unshipped records stay in the journal (the retention floor holds them)
+    private void fail(String reason) {
+        failure = reason;
+        running = false;
+        System.err.println("Journal shipping stopped for " + terminalId + ": " + reason);
+    }
+
+    // Why shipping stopped for good, or null while it runs
+    public String getFailure() {
+        return failure;
+    }
+
+    // Drops the current connection (the shipper reconnects); simulates a link failure
+    public void disconnect() {
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public long getAcked() {
+        return acked;
+    }
+
+    // Bytes of the journal not yet acknowledged
+    public long getBacklog() {
+        return journal.getEnd() - Math.max(acked, 0);
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    public long getShippedBytes() {
+        return shippedBytes;
+    }
+
+    public int getReconnects() {
+        return reconnects;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        disconnect();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,149 @@
+package POS;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Station screen (kitchen or bar) fed by an {@link OrderRingBuffer} consumer.
+ * The consumer thread copies lines into preallocated staging arrays; the EDT drains
+ * them once per batch, so a rush of lines costs one repaint, not one per line.
+ * The consumer never waits for the EDT (which may itself be publishing a huge order and
+ * waiting for this consumer): when the EDT falls a whole staging ring behind, the oldest
+ * staged lines are skipped. The screen keeps only the last rows anyway.
+ */
+public class KitchenDisplay extends JFrame implements OrderRingBuffer.StationHandler {
+    private static final int STAGING = 1024;
+    private static final int MAX_ROWS = 200;
+
+    // Staging ring, guarded by this: staged lines start at stFirst
+    private final long[] stOrder = new long[STAGING];
+    private final Product[] stProduct = new Product[STAGING];
+    private final int[] stQty = new int[STAGING];
+    private final long[] stPublished = new long[STAGING];
+    private int stFirst = 0;
+    private int staged = 0;
+    private long skipped = 0;
+
+    // Drain task is queued on the EDT
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    private final DefaultListModel<String> rows = new DefaultListModel<>();
+    private final JLabel status = new JLabel(" ");
+    private long lastOrder = -1;
+
+    // Publish-to-display latency, EDT only
+    private long shown = 0;
+    private long latencySum = 0;
+    private long latencyMax = 0;
+    private long skippedShown = 0;
+
+    private OrderRingBuffer.StationConsumer consumer;
+
+    private KitchenDisplay(String title) {
+        super(title);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JLabel head = new JLabel(title, SwingConstants.CENTER);
+        head.setFont(head.getFont().deriveFont(Font.BOLD, 18f));
+        head.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        add(head, BorderLayout.NORTH);
+
+        JList<String> list = new JList<>(rows);
+        list.setFont(list.getFont().deriveFont(Font.PLAIN, 16f));
+        add(new JScrollPane(list), BorderLayout.CENTER);
+
+        JPanel south = new JPanel(new BorderLayout());
+        JButton clear = new JButton("Clear");
+        clear.setFocusPainted(false);
+        clear.addActionListener(e -> {
+            rows.clear();
+            lastOrder = -1;
+        });
+        south.add(status, BorderLayout.CENTER);
+        south.add(clear, BorderLayout.EAST);
+        south.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        add(south, BorderLayout.SOUTH);
+
+        setSize(320, 420);
+    }
+
+    /**
+     * Opens a display for the given stations and attaches it to the ring buffer.
+     */
+    public static KitchenDisplay open(OrderRingBuffer ring, int stations, String title) {
+        KitchenDisplay d = new KitchenDisplay(title);
+        d.consumer = ring.addConsumer(title, stations, d);
+        d.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                d.consumer.halt();
+            }
+        });
+        d.setVisible(true);
+        return d;
+    }
+
+    // Consumer thread
+    @Override
+    public void onLine(OrderRingBuffer.OrderLine line) {
+        synchronized (this) {
+            if (staged == STAGING) {
+                // EDT is a full ring behind: overwrite the oldest line rather than wait for it
+                stFirst = (stFirst + 1) % STAGING;
+                staged--;
+                skipped++;
+            }
+            int i = (stFirst + staged) % STAGING;
+            stOrder[i] = line.getOrderNo();
+            stProduct[i] = line.getProduct();
+            stQty[i] = line.getQuantity();
+            stPublished[i] = line.getPublishNanos();
+            staged++;
+            if (staged == STAGING) queueDrain();
+        }
+    }
+
+    // Consumer thread
+    @Override
+    public void onBatchEnd() {
+        synchronized (this) {
+            if (staged > 0) queueDrain();
+        }
+    }
+
+    private void queueDrain() {
+        if (drainQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    // EDT
+    private void drain() {
+        drainQueued.set(false);
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (int k = 0; k < staged; k++) {
+                int i = (stFirst + k) % STAGING;
+                if (stOrder[i] != lastOrder) {
+                    rows.addElement("Order #" + stOrder[i]);
+                    lastOrder = stOrder[i];
+                }
+                rows.addElement("    " + stQty[i] + " x " + stProduct[i].getName());
+                long latency = now - stPublished[i];
+                latencySum += latency;
+                latencyMax = Math.max(latencyMax, latency);
+                shown++;
+                stProduct[i] = null;
+            }
+            stFirst = 0;
+            staged = 0;
+            skippedShown = skipped;
+        }
+        while (rows.size() > MAX_ROWS) rows.remove(0);
+        status.setText(String.format("%d lines  avg %.2f ms  max %.2f ms%s",
+                shown, latencySum / 1e6 / Math.max(1, shown), latencyMax / 1e6,
+                skippedShown > 0 ? "  " + skippedShown + " skipped" : ""));
+    }
+}
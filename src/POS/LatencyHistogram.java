@@ -0,0 +1,64 @@
+package POS;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond latencies: 16 sub-buckets per power of two,
+ * so a recorded value is off by at most 1/16 (about 6%). Recording is an array increment,
+ * with no allocation, so it can sit inside measured loops. Not thread-safe; keep one per
+ * thread and {@link #add} them.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long max;
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucket(nanos)]++;
+        total++;
+        if (nanos > max) max = nanos;
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    long max() {
+        return max;
+    }
+
+    // Value at quantile q (0..1), as the midpoint of its bucket
+    long percentile(double q) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max, (lowerBound(i) + lowerBound(i + 1) - 1) / 2);
+        }
+        return max;
+    }
+
+    private static int bucket(long v) {
+        if (v < SUB) return (int) v;
+        int mag = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (mag - SUB_BITS)) & (SUB - 1);
+        return (mag - SUB_BITS + 1) * SUB + sub;
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int mag = bucket / SUB + SUB_BITS - 1;
+        if (mag >= 63) return Long.MAX_VALUE;
+        return (1L << mag) | ((long) (bucket % SUB) << (mag - SUB_BITS));
+    }
+}
@@ -0,0 +1,494 @@
+package POS;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.swing.JButton;
+import javax.swing.SwingUtilities;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Synthetic cashier load for end-to-end benchmarking, driving the real code paths:
+ * scans through Cart (and the CartTableModel listening to it), quantity edits through
+ * CartTableModel.setValueAt, checkouts through CheckoutPipeline into the kitchen/bar ring.
+ *
+ * - headless: each cashier is a lane of its own (cart, table model, pipeline, ring) on its own thread
+ * - live: one cashier clicks the product tiles of a real Main frame and checks out through it
+ *   (the dialog is built but not shown, so its modal wait is skipped); run it under Xvfb on
+ *   build machines, see scripts/load-test.sh
+ *
+ * With a scan rate set, latency is measured from each action's scheduled time, so a stall
+ * shows up in every action it delays, not just the one that hit it.
+ * Per scenario it prints one POS-LOAD line of key=value pairs for comparing builds: throughput,
+ * scan/edit/checkout latency percentiles, allocation rate of the cashier threads (the EDT in
+ * live mode), GC pauses, and in live mode the render quality tier and frame times.
+ *
+ * Usage: java -cp out/production/POS POS.LoadGenerator [--scenario rush|steady|bulk|all] [--mode headless|live]
+ *        [--cashiers n] [--basket min-max] [--rate scansPerSecond] [--skew zipfExponent]
+ *        [--products n] [--edits probability] [--seconds s] [--warmup s]
+ */
+public class LoadGenerator {
+    static final String PREFIX = "POS-LOAD";
+
+    // One load profile
+    static final class Scenario {
+        String name;
+        boolean live;
+        int cashiers = 4;
+        int basketMin = 1;
+        int basketMax = 6;
+        double scanRate;   // scans per second per cashier, 0 = as fast as possible
+        double skew = 1.0; // Zipf exponent of product popularity, 0 = uniform
+        int products = 200;
+        double edits = 0.2; // chance per basket of a quantity edit in the table
+        double seconds = 10;
+        double warmup = 3;
+
+        Scenario(String name) {
+            this.name = name;
+        }
+
+        Scenario copy(double seconds) {
+            Scenario s = new Scenario(name);
+            s.live = live;
+            s.cashiers = cashiers;
+            s.basketMin = basketMin;
+            s.basketMax = basketMax;
+            s.scanRate = scanRate;
+            s.skew = skew;
+            s.products = products;
+            s.edits = edits;
+            s.seconds = seconds;
+            s.warmup = 0;
+            return s;
+        }
+    }
+
+    // Built-in profiles
+    static Map<String, Scenario> presets() {
+        Map<String, Scenario> m = new LinkedHashMap<>();
+        Scenario rush = new Scenario("rush");
+        rush.basketMin = 1;
+        rush.basketMax = 6;
+        rush.skew = 1.1;
+        m.put(rush.name, rush);
+
+        Scenario steady = new Scenario("steady");
+        steady.cashiers = 8;
+        steady.basketMax = 10;
+        steady.scanRate = 50;
+        steady.skew = 0.8;
+        m.put(steady.name, steady);
+
+        Scenario bulk = new Scenario("bulk");
+        bulk.cashiers = 2;
+        bulk.basketMin = 200;
+        bulk.basketMax = 2_000;
+        bulk.skew = 0.5;
+        bulk.products = 5_000;
+        bulk.edits = 1.0;
+        m.put(bulk.name, bulk);
+        return m;
+    }
+
+    // Product popularity: Zipf over the catalog order
+    static final class Popularity {
+        private final double[] cdf;
+
+        Popularity(int n, double s) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1.0 / Math.pow(k + 1, s);
+                cdf[k] = sum;
+            }
+            for (int k = 0; k < n; k++) cdf[k] /= sum;
+        }
+
+        int next(SplittableRandom rnd) {
+            double u = rnd.nextDouble();
+            int lo = 0, hi = cdf.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cdf[mid] < u) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    // What one cashier measured
+    static final class Result {
+        final LatencyHistogram scan = new LatencyHistogram();
+        final LatencyHistogram edit = new LatencyHistogram();
+        final LatencyHistogram checkout = new LatencyHistogram();
+        long orders;
+        long allocatedBytes;
+
+        void add(Result r) {
+            scan.add(r.scan);
+            edit.add(r.edit);
+            checkout.add(r.checkout);
+            orders += r.orders;
+            allocatedBytes += r.allocatedBytes;
+        }
+    }
+
+    // The operations a cashier performs, headless or through the frame
+    interface Lane {
+        void scan(Product p) throws Exception;
+
+        // Sets the quantity of the line shown at a table row
+        void edit(int row, int quantity) throws Exception;
+
+        int rows() throws Exception;
+
+        void checkout() throws Exception;
+
+        // Allocated bytes so far by the thread doing the work
+        long allocatedBytes() throws Exception;
+    }
+
+    // A complete lane without a frame: cart, table model, pipeline and a draining kitchen/bar consumer
+    static final class HeadlessLane implements Lane {
+        final Cart cart = new Cart();
+        final CartTableModel model = new CartTableModel(cart);
+        final CheckoutPipeline pipeline = new CheckoutPipeline();
+        final OrderRingBuffer ring = new OrderRingBuffer(4096);
+        final OrderRingBuffer.StationConsumer consumer;
+
+        HeadlessLane(String name) {
+            pipeline.addListener(ring);
+            consumer = ring.addConsumer(name, OrderRingBuffer.KITCHEN | OrderRingBuffer.BAR, line -> { });
+        }
+
+        @Override
+        public void scan(Product p) {
+            cart.addProduct(p);
+        }
+
+        @Override
+        public void edit(int row, int quantity) {
+            model.setValueAt(String.valueOf(quantity), row, 1);
+        }
+
+        @Override
+        public int rows() {
+            return model.getRowCount();
+        }
+
+        @Override
+        public void checkout() {
+            pipeline.confirm(cart.snapshot());
+            cart.clear();
+        }
+
+        @Override
+        public long allocatedBytes() {
+            return threadAllocated(Thread.currentThread().getId());
+        }
+    }
+
+    // Drives a live frame on the EDT, through the product tiles
+    static final class LiveLane implements Lane {
+        final Main main;
+        final long edtId;
+
+        LiveLane(Main main) throws Exception {
+            this.main = main;
+            long[] id = new long[1];
+            SwingUtilities.invokeAndWait(() -> id[0] = Thread.currentThread().getId());
+            this.edtId = id[0];
+        }
+
+        @Override
+        public void scan(Product p) throws Exception {
+            SwingUtilities.invokeAndWait(() -> {
+                JButton tile = main.getProductTile(p.getId());
+                if (tile != null) tile.doClick(0);
+            });
+        }
+
+        @Override
+        public void edit(int row, int quantity) throws Exception {
+            SwingUtilities.invokeAndWait(() -> main.getTableModel().setValueAt(String.valueOf(quantity), row, 1));
+        }
+
+        @Override
+        public int rows() throws Exception {
+            int[] n = new int[1];
+            SwingUtilities.invokeAndWait(() -> n[0] = main.getTableModel().getRowCount());
+            return n[0];
+        }
+
+        @Override
+        public void checkout() throws Exception {
+            SwingUtilities.invokeAndWait(main::checkoutAndClear);
+        }
+
+        @Override
+        public long allocatedBytes() {
+            return threadAllocated(edtId);
+        }
+    }
+
+    static long threadAllocated(long threadId) {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(threadId);
+        }
+        return -1;
+    }
+
+    // Records GC pauses (stop-the-world collections) while a scenario runs
+    static final class GcPauses implements NotificationListener {
+        private long count;
+        private long totalMillis;
+        private long maxMillis;
+
+        GcPauses() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter) ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification n, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(n.getType())) return;
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) n.getUserData());
+            // Concurrent cycles do not stop the application
+            if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) return;
+            long ms = info.getGcInfo().getDuration();
+            count++;
+            totalMillis += ms;
+            maxMillis = Math.max(maxMillis, ms);
+        }
+
+        synchronized void reset() {
+            count = totalMillis = maxMillis = 0;
+        }
+
+        synchronized String report() {
+            return "gc_pauses=" + count + " gc_pause_total_ms=" + totalMillis + " gc_pause_max_ms=" + maxMillis;
+        }
+    }
+
+    // One cashier's loop: baskets of scans, an occasional table edit, then checkout
+    static Result runCashier(Lane lane, Scenario sc, List<Product> catalog, long seed, long endNanos) throws Exception {
+        Result r = new Result();
+        SplittableRandom rnd = new SplittableRandom(seed);
+        Popularity pop = new Popularity(catalog.size(), sc.skew);
+        long interval = sc.scanRate > 0 ? (long) (1e9 / sc.scanRate) : 0;
+        long allocStart = lane.allocatedBytes();
+        long next = System.nanoTime();
+        while (System.nanoTime() < endNanos) {
+            int n = sc.basketMin + rnd.nextInt(sc.basketMax - sc.basketMin + 1);
+            for (int i = 0; i < n; i++) {
+                long start = pace(next, interval);
+                lane.scan(catalog.get(pop.next(rnd)));
+                r.scan.record(System.nanoTime() - start);
+                next = start + interval;
+            }
+            if (rnd.nextDouble() < sc.edits) {
+                int rows = lane.rows();
+                if (rows > 0) {
+                    long start = System.nanoTime();
+                    // Quantity 0 removes the line
+                    lane.edit(rnd.nextInt(rows), rnd.nextInt(6));
+                    r.edit.record(System.nanoTime() - start);
+                }
+            }
+            long start = System.nanoTime();
+            lane.checkout();
+            r.checkout.record(System.nanoTime() - start);
+            r.orders++;
+        }
+        r.allocatedBytes = lane.allocatedBytes() - allocStart;
+        return r;
+    }
+
+    // Waits until the scheduled time; returns the time the action counts from
+    private static long pace(long scheduled, long interval) {
+        if (interval == 0) return System.nanoTime();
+        // Park most of the wait, spin the rest: wake-up lateness would otherwise count as latency
+        long wait;
+        while ((wait = scheduled - System.nanoTime()) > 0) {
+            if (wait > 200_000) LockSupport.parkNanos(wait - 100_000);
+            else Thread.onSpinWait();
+        }
+        return scheduled;
+    }
+
+    static List<Product> syntheticCatalog(int n) {
+        List<Product> list = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            list.add(i % 3 == 0 ? new DrinkItem(i, "Drink " + i, 1.0 + i % 9 * 0.25) : new FoodItem(i, "Food " + i, 2.0 + i % 13 * 0.5));
+        }
+        return list;
+    }
+
+    static Result runHeadless(Scenario sc) throws Exception {
+        List<Product> catalog = syntheticCatalog(sc.products);
+        long end = System.nanoTime() + (long) (sc.seconds * 1e9);
+        Result[] results = new Result[sc.cashiers];
+        Thread[] threads = new Thread[sc.cashiers];
+        Exception[] failure = new Exception[1];
+        for (int c = 0; c < sc.cashiers; c++) {
+            final int id = c;
+            threads[c] = new Thread(() -> {
+                HeadlessLane lane = new HeadlessLane(sc.name + "-" + id);
+                try {
+                    results[id] = runCashier(lane, sc, catalog, 1_000L * id + 17, end);
+                } catch (Exception e) {
+                    failure[0] = e;
+                } finally {
+                    lane.consumer.halt();
+                }
+            }, "Cashier-" + (c + 1));
+            threads[c].start();
+        }
+        Result total = new Result();
+        for (int c = 0; c < sc.cashiers; c++) {
+            threads[c].join();
+            if (results[c] != null) total.add(results[c]);
+        }
+        if (failure[0] != null) throw failure[0];
+        return total;
+    }
+
+    static Result runLive(Scenario sc, Main main) throws Exception {
+        List<Product> catalog = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> catalog.addAll(main.getProducts()));
+        return runCashier(new LiveLane(main), sc, catalog, 17, System.nanoTime() + (long) (sc.seconds * 1e9));
+    }
+
+    // Starts the real frame and waits until every product tile is clickable
+    static Main startFrame() throws Exception {
+        Main[] m = new Main[1];
+        SwingUtilities.invokeAndWait(() -> {
+            m[0] = new Main();
+            m[0].show();
+        });
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            boolean[] ready = {true};
+            SwingUtilities.invokeAndWait(() -> {
+                for (Product p : m[0].getProducts()) ready[0] &= m[0].getProductTile(p.getId()) != null;
+            });
+            if (ready[0]) return m[0];
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("Product grid did not load");
+    }
+
+    static String report(Scenario sc, Result r, double seconds, GcPauses gc) {
+        long scans = r.scan.count();
+        return PREFIX + " scenario=" + sc.name + " mode=" + (sc.live ? "live" : "headless")
+                + " cashiers=" + (sc.live ? 1 : sc.cashiers)
+                + String.format(" seconds=%.1f scans=%d scans_per_s=%.0f orders_per_s=%.1f", seconds, scans,
+                scans / seconds, r.orders / seconds)
+                + latency("scan", r.scan) + latency("edit", r.edit) + latency("checkout", r.checkout)
+                + String.format(" alloc_mb_per_s=%.1f ", r.allocatedBytes / seconds / 1048576.0)
+                + gc.report()
+                + (sc.live ? render() : "");
+    }
+
+    // Render quality at the end of a live run: tier and the last window of frame times
+    private static String render() {
+        RenderQuality q = RenderQuality.get();
+        return String.format(" render_tier=%s frame_p50_ms=%.1f frame_p95_ms=%.1f render_steps_down=%d render_steps_up=%d",
+                q.getTier(), q.getP50Nanos() / 1e6, q.getP95Nanos() / 1e6, q.getStepDowns(), q.getStepUps());
+    }
+
+    private static String latency(String what, LatencyHistogram h) {
+        return String.format(" %s_p50_us=%.1f %s_p99_us=%.1f %s_p999_us=%.1f %s_max_us=%.1f",
+                what, h.percentile(0.50) / 1e3, what, h.percentile(0.99) / 1e3,
+                what, h.percentile(0.999) / 1e3, what, h.max() / 1e3);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Scenario> presets = presets();
+        String which = "all";
+        Map<String, String> overrides = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String key = args[i].replaceFirst("^--", "");
+            if (key.equals("scenario")) which = args[i + 1];
+            else overrides.put(key, args[i + 1]);
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        for (Scenario sc : presets.values()) {
+            if (which.equals("all") || which.equals(sc.name)) scenarios.add(sc);
+        }
+        if (scenarios.isEmpty()) throw new IllegalArgumentException("Unknown scenario " + which + ", have " + presets.keySet());
+        for (Scenario sc : scenarios) apply(sc, overrides);
+
+        Main main = null;
+        GcPauses gc = new GcPauses();
+        for (Scenario sc : scenarios) {
+            if (sc.live && main == null) main = startFrame();
+            // Warm-up pass, not reported
+            if (sc.warmup > 0) {
+                Scenario w = sc.copy(sc.warmup);
+                if (sc.live) runLive(w, main);
+                else runHeadless(w);
+            }
+            System.gc();
+            Thread.sleep(200); // let the notification of that collection arrive before resetting
+            gc.reset();
+            long t0 = System.nanoTime();
+            Result r = sc.live ? runLive(sc, main) : runHeadless(sc);
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            System.out.println(report(sc, r, seconds, gc));
+        }
+        System.exit(0);
+    }
+
+    private static void apply(Scenario sc, Map<String, String> o) {
+        for (Map.Entry<String, String> e : o.entrySet()) {
+            String v = e.getValue();
+            switch (e.getKey()) {
+                case "mode":
+                    sc.live = v.equals("live");
+                    break;
+                case "cashiers":
+                    sc.cashiers = Integer.parseInt(v);
+                    break;
+                case "basket":
+                    String[] mm = v.split("-");
+                    sc.basketMin = Integer.parseInt(mm[0]);
+                    sc.basketMax = Integer.parseInt(mm[mm.length - 1]);
+                    break;
+                case "rate":
+                    sc.scanRate = Double.parseDouble(v);
+                    break;
+                case "skew":
+                    sc.skew = Double.parseDouble(v);
+                    break;
+                case "products":
+                    sc.products = Integer.parseInt(v);
+                    break;
+                case "edits":
+                    sc.edits = Double.parseDouble(v);
+                    break;
+                case "seconds":
+                    sc.seconds = Double.parseDouble(v);
+                    break;
+                case "warmup":
+                    sc.warmup = Double.parseDouble(v);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option --" + e.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package POS;
+
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic member base through {@link LoyaltyMembers}: index build time, open time, heap
+ * held by the open index, and lookup latency by phone, by card and for unknown numbers;
+ * then the heap of the same members as a HashMap&lt;String, Member&gt; for comparison.
+ *
+ * Usage: java -Xmx2g -cp out/production/POS POS.LoyaltyBenchmark [members] [lookups]
+ */
+public class LoyaltyBenchmark {
+    private static final long CARD_BASE = 6_000_000_000_000_000L;
+    private static final long PHONE_BASE = 9_170_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int members = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Path dir = Files.createTempDirectory("pos-loyalty");
+        Path csv = dir.resolve("members.csv");
+        Path index = dir.resolve("members.idx");
+        try {
+            // Phones are scattered so keys do not arrive sorted
+            try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                out.write("card,phone,name,tier,points\n");
+                for (int i = 0; i < members; i++) {
+                    out.write((CARD_BASE + i) + ",0" + phone(i) + ",Member " + i + "," + (i % 4) + "," + (i % 5_000) + "\n");
+                }
+            }
+            long t0 = System.nanoTime();
+            LoyaltyMembers.build(csv, index);
+            System.out.printf("%,d members: index %,d KB, built in %.0f ms%n", members, Files.size(index) / 1024,
+                    (System.nanoTime() - t0) / 1e6);
+
+            long heap0 = usedHeap();
+            t0 = System.nanoTime();
+            LoyaltyMembers idx = LoyaltyMembers.open(index);
+            double openMs = (System.nanoTime() - t0) / 1e6;
+            long heap1 = usedHeap();
+            System.out.printf("open: %.1f ms, heap held %,d KB%n", openMs, Math.max(0, heap1 - heap0) / 1024);
+
+            Random rnd = new Random(3);
+            String[] kinds = {"phone", "card", "unknown"};
+            for (int kind = 0; kind < 3; kind++) {
+                // Numbers typed by the cashier, as text, prepared outside the timing
+                String[] numbers = new String[Math.min(lookups, 1 << 16)];
+                for (int i = 0; i < numbers.length; i++) {
+                    int m = rnd.nextInt(members);
+                    numbers[i] = kind == 0 ? "0" + phone(m) : kind == 1 ? String.valueOf(CARD_BASE + m) : "0" + (PHONE_BASE - 1 - m);
+                }
+                LatencyHistogram h = new LatencyHistogram();
+                int found = 0;
+                for (int i = 0; i < lookups; i++) {
+                    long s = System.nanoTime();
+                    LoyaltyMembers.Member member = idx.find(numbers[i & (numbers.length - 1)]);
+                    h.record(System.nanoTime() - s);
+                    if (member != null) found++;
+                }
+                System.out.printf("lookup by %-8s p50 %,6d ns  p99 %,6d ns  max %,9d ns  found %d/%d%n", kinds[kind],
+                        h.percentile(0.5), h.percentile(0.99), h.max(), found, lookups);
+            }
+
+            // The same members as objects in a map
+            heap0 = usedHeap();
+            Map<String, LoyaltyMembers.Member> map = new HashMap<>();
+            for (int i = 0; i < members; i++) {
+                LoyaltyMembers.Member m = new LoyaltyMembers.Member(CARD_BASE + i, "Member " + i, i % 4, i % 5_000);
+                map.put(String.valueOf(CARD_BASE + i), m);
+                map.put("0" + phone(i), m);
+            }
+            heap1 = usedHeap();
+            System.out.printf("HashMap<String, Member>: heap %,d KB for %,d entries%n", (heap1 - heap0) / 1024, map.size());
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(index);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // Distinct mobile number per member, in no particular order: multiplying by an odd
+    // constant modulo 2^30 is a bijection
+    private static long phone(int member) {
+        return PHONE_BASE + ((member * 0x9E3779B1L) & 0x3FFFFFFFL);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,353 @@
+package POS;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loyalty member lookup by phone or card number, over millions of members.
+ * The index file is mapped, not parsed: sorted keys (numbers as longs), the member slot of
+ * each key, fixed-size member records and their names, so opening costs a header check
+ * and the only heap used is a fence of every 512th key. A lookup binary-searches the fence,
+ * then one 4 KB run of keys in the mapping, and decodes a single record.
+ * Each member has two keys (card and phone) pointing at the same record. A key is tagged
+ * with its kind and digit count, so a phone and a card with the same digits, or numbers
+ * that differ only in leading zeros, never collide.
+ *
+ * File: header (magic, version, key count, member count), keys (longs), slots (ints),
+ * records of card key (8), points (4), tier (4), name offset and length (4 + 4),
+ * then the names (UTF-8). Little-endian. Built from a CSV of card,phone,name,tier,points.
+ *
+ * Usage: java -cp out/production/POS POS.LoyaltyMembers build members.csv members.idx
+ *        java -cp out/production/POS POS.LoyaltyMembers find members.idx &lt;phone or card&gt;
+ */
+public class LoyaltyMembers {
+    private static final int MAGIC = 0x504F534C; // "POSL"
+    private static final int VERSION = 3;
+    private static final int HEADER = 16;
+    private static final int RECORD = 24;
+    private static final int FENCE_STEP = 512;
+    // Key layout: phone flag (bit 62), digit count (bits 57-61), value (bits 0-56)
+    private static final int MAX_DIGITS = 17;
+    private static final long PHONE = 1L << 62;
+    private static final int DIGITS_SHIFT = 57;
+    // Points are earned per this many pesos of the total
+    static final int PESOS_PER_POINT = 10;
+    static final String[] TIERS = {"Basic", "Silver", "Gold", "Platinum"};
+
+    // A member, decoded on lookup
+    public static final class Member {
+        private final long card;
+        private final String name;
+        private final int tier;
+        private final int points;
+
+        Member(long card, String name, int tier, int points) {
+            this.card = card;
+            this.name = name;
+            this.tier = tier;
+            this.points = points;
+        }
+
+        // Card key (see cardKey): keeps the digit count, so 0012345 and 12345 stay apart.
+        // This is what journals, parked carts and the audit trail store; find(long) takes it back.
+        public long getCard() {
+            return card;
+        }
+
+        // Card number as printed, with its leading zeros
+        public String getCardNumber() {
+            return number(card);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTier() {
+            return tier >= 0 && tier < TIERS.length ? TIERS[tier] : "Tier " + tier;
+        }
+
+        // Points balance when the index was built
+        public int getPoints() {
+            return points;
+        }
+
+        // Points an order of this total (pesos, tax included) earns
+        public int pointsFor(double total) {
+            return (int) (total / PESOS_PER_POINT);
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + getTier() + ")";
+        }
+    }
+
+    private final LongBuffer keys;
+    private final IntBuffer slots;
+    private final ByteBuffer records;
+    private final ByteBuffer names;
+    private final long[] fence;
+    private final int keyCount;
+    private final int memberCount;
+
+    private LoyaltyMembers(MappedByteBuffer map) throws IOException {
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        if (map.capacity() < HEADER || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Not a loyalty member index");
+        }
+        keyCount = map.getInt(8);
+        memberCount = map.getInt(12);
+        long namesAt = HEADER + keyCount * 12L + memberCount * (long) RECORD;
+        if (keyCount < 0 || memberCount < 0 || namesAt > map.capacity()) {
+            throw new IOException("Loyalty member index is truncated");
+        }
+        keys = slice(map, HEADER, keyCount * 8).asLongBuffer();
+        slots = slice(map, HEADER + keyCount * 8, keyCount * 4).asIntBuffer();
+        records = slice(map, HEADER + keyCount * 12, memberCount * RECORD);
+        names = slice(map, (int) namesAt, map.capacity() - (int) namesAt);
+        fence = new long[(keyCount + FENCE_STEP - 1) / FENCE_STEP];
+        for (int i = 0; i < fence.length; i++) fence[i] = keys.get(i * FENCE_STEP);
+    }
+
+    private static ByteBuffer slice(ByteBuffer b, int at, int length) {
+        ByteBuffer d = b.duplicate();
+        d.position(at).limit(at + length);
+        return d.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Maps an index file written by build()
+    public static LoyaltyMembers open(Path index) throws IOException {
+        try (FileChannel ch = FileChannel.open(index, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("Loyalty member index over 2 GB");
+            return new LoyaltyMembers(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /**
+     * Member with this phone or card number (any punctuation ignored), or null.
+     * The number is tried as a phone first, then as a card.
+     */
+    public Member find(String number) {
+        long key = phoneKey(number);
+        if (key < 0) return null;
+        Member m = find(key);
+        return m != null ? m : find(cardKey(number));
+    }
+
+    public Member find(long key) {
+        // Last fence entry at or below the key, then the keys it covers
+        int f = Arrays.binarySearch(fence, key);
+        if (f < 0) f = -f - 2;
+        if (f < 0) return null;
+        int lo = f * FENCE_STEP;
+        int hi = Math.min(keyCount, lo + FENCE_STEP) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = keys.get(mid);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return member(slots.get(mid));
+        }
+        return null;
+    }
+
+    private Member member(int slot) {
+        int at = slot * RECORD;
+        byte[] name = new byte[records.getInt(at + 20)];
+        ByteBuffer n = names.duplicate();
+        n.position(records.getInt(at + 16));
+        n.get(name);
+        return new Member(records.getLong(at), new String(name, StandardCharsets.UTF_8),
+                records.getInt(at + 12), records.getInt(at + 8));
+    }
+
+    public int size() {
+        return memberCount;
+    }
+
+    // Key of a card number, or -1 without digits (or too many)
+    public static long cardKey(String number) {
+        return key(number, 0);
+    }
+
+    // Key of a phone number, or -1 without digits (or too many)
+    public static long phoneKey(String number) {
+        return key(number, PHONE);
+    }
+
+    private static long key(String number, long kind) {
+        long k = 0;
+        int digits = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') continue;
+            if (++digits > MAX_DIGITS) return -1;
+            k = k * 10 + (c - '0');
+        }
+        return digits == 0 ? -1 : kind | (long) digits << DIGITS_SHIFT | k;
+    }
+
+    /**
+     * Builds an index from a CSV of card,phone,name,tier,points (header and # lines skipped;
+     * phone may be empty). Written to a temporary file and renamed over index, so a lane
+     * opening it meanwhile sees the old or the new one. Returns the member count.
+     */
+    public static int build(Path csv, Path index) throws IOException {
+        int n = 0;
+        long[] cards = new long[1024], phones = new long[1024];
+        int[] tiers = new int[1024], points = new int[1024];
+        ByteBuffer nameBytes = ByteBuffer.allocate(1 << 16);
+        int[] nameAt = new int[1024];
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("card")) continue;
+                String[] f = line.split(",", 5);
+                if (f.length != 5) throw new IOException(csv + ":" + lineNo + ": expected card,phone,name,tier,points");
+                if (n == cards.length) {
+                    cards = Arrays.copyOf(cards, n * 2);
+                    phones = Arrays.copyOf(phones, n * 2);
+                    tiers = Arrays.copyOf(tiers, n * 2);
+                    points = Arrays.copyOf(points, n * 2);
+                    nameAt = Arrays.copyOf(nameAt, n * 2 + 1);
+                }
+                cards[n] = cardKey(f[0]);
+                if (cards[n] < 0) throw new IOException(csv + ":" + lineNo + ": bad card number");
+                phones[n] = f[1].trim().isEmpty() ? -1 : phoneKey(f[1]);
+                if (phones[n] < 0 && !f[1].trim().isEmpty()) throw new IOException(csv + ":" + lineNo + ": bad phone number");
+                byte[] name = f[2].trim().getBytes(StandardCharsets.UTF_8);
+                if (nameBytes.remaining() < name.length) {
+                    nameBytes = ByteBuffer.allocate(Math.max(nameBytes.capacity() * 2, nameBytes.position() + name.length))
+                            .put(nameBytes.array(), 0, nameBytes.position());
+                }
+                nameAt[n] = nameBytes.position();
+                nameBytes.put(name);
+                try {
+                    tiers[n] = Integer.parseInt(f[3].trim());
+                    points[n] = Integer.parseInt(f[4].trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException(csv + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+                n++;
+            }
+        }
+        if (nameAt.length < n + 1) nameAt = Arrays.copyOf(nameAt, n + 1);
+        nameAt[n] = nameBytes.position();
+
+        // Keys of both kinds, sorted with their slots
+        long[] keys = new long[n * 2];
+        int[] slots = new int[n * 2];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            keys[k] = cards[i];
+            slots[k++] = i;
+            if (phones[i] >= 0) {
+                keys[k] = phones[i];
+                slots[k++] = i;
+            }
+        }
+        sort(keys, slots, 0, k - 1);
+        for (int i = 1; i < k; i++) {
+            if (keys[i] == keys[i - 1]) {
+                String kind = (keys[i] & PHONE) != 0 ? "Phone" : "Card";
+                throw new IOException(kind + " number " + number(keys[i]) + " belongs to two members");
+            }
+        }
+
+        long size = HEADER + k * 12L + n * (long) RECORD + nameBytes.position();
+        if (size > Integer.MAX_VALUE) throw new IOException("Loyalty member index would exceed 2 GB");
+        Path tmp = index.resolveSibling(index.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(k).putInt(n);
+            for (int i = 0; i < k; i++) out.putLong(keys[i]);
+            for (int i = 0; i < k; i++) out.putInt(slots[i]);
+            for (int i = 0; i < n; i++) {
+                out.putLong(cards[i]).putInt(points[i]).putInt(tiers[i]).putInt(nameAt[i]).putInt(nameAt[i + 1] - nameAt[i]);
+            }
+            out.put(nameBytes.array(), 0, nameBytes.position());
+            out.force();
+        }
+        Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return n;
+    }
+
+    // The number a key was made from, with its leading zeros
+    private static String number(long key) {
+        int digits = (int) (key >>> DIGITS_SHIFT) & 0x1F;
+        String v = Long.toString(value(key));
+        StringBuilder sb = new StringBuilder(digits);
+        for (int i = v.length(); i < digits; i++) sb.append('0');
+        return sb.append(v).toString();
+    }
+
+    private static long value(long key) {
+        return key & ((1L << DIGITS_SHIFT) - 1);
+    }
+
+    // Quicksort of keys, moving slots along
+    private static void sort(long[] keys, int[] slots, int lo, int hi) {
+        while (hi - lo > 16) {
+            long pivot = keys[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) swap(keys, slots, i++, j--);
+            }
+            // Recurse into the smaller part, loop on the larger
+            if (j - lo < hi - i) {
+                sort(keys, slots, lo, j);
+                lo = i;
+            } else {
+                sort(keys, slots, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) swap(keys, slots, j, j - 1);
+        }
+    }
+
+    private static void swap(long[] keys, int[] slots, int a, int b) {
+        long k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        int s = slots[a];
+        slots[a] = slots[b];
+        slots[b] = s;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("build")) {
+            long t0 = System.nanoTime();
+            int n = build(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.printf("%d members indexed in %.0f ms%n", n, (System.nanoTime() - t0) / 1e6);
+        } else if (args.length == 3 && args[0].equals("find")) {
+            Member m = open(Paths.get(args[1])).find(args[2]);
+            System.out.println(m == null ? "not a member" : m.getCardNumber() + " " + m + " " + m.getPoints() + " points");
+        } else {
+            System.err.println("Usage: LoyaltyMembers build <csv> <index> | find <index> <phone or card>");
+            System.exit(2);
+        }
+    }
+}
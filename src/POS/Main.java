@@ -6,14 +6,24 @@ import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.AbstractCellEditor;
 import javax.swing.table.TableCellEditor;
 import javax.swing.table.TableCellRenderer;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Main application class for the Point of Sale (POS) system.
@@ -40,8 +50,10 @@ public class Main {
     // 12% tax rate applied to subtotal
     private final double TAX_RATE = 0.12;
 
-    // Product catalog - contains all available products for sale
-    private final List<Product> catalog = new ArrayList<>();
+    // Product catalog - contains all available products for sale.
+    // Replaced as a whole on reload; read it once per operation.
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>();
+    private CatalogWatcher catalogWatcher;
 
     // UI state variables
     private JPanel tileSubtotal;     // Visual panel for subtotal display
@@ -51,29 +63,318 @@ public class Main {
 
     // Cart table flash animation state
     private JTable cartTable;        // Reference to the cart table component
-    private int flashRow = -1;       // Row index to highlight with flash animation
+    private int flashRow = -1;       // Cart line to highlight with flash animation
     private float flashPhase = 0f;   // Current phase of flash animation
     private Timer flashTimer;        // Timer controlling flash animation
+    private Timer headerTimer;       // Timer driving the header animation
+    private boolean gridLoaded;      // Product grid filled; the header animation may run
+
+    // Post-checkout stages and kitchen/bar routing
+    private final CheckoutPipeline checkout = new CheckoutPipeline(openReceiptNumbers());
+    private final OrderRingBuffer orderRouting = new OrderRingBuffer(4096);
+
+    // Undo/redo of cart edits, reset when the order is sold and again when it is cleared away
+    private CartCommandLog cartHistory;
+    // The cart holds an order that was already sold
+    private boolean cartSold;
+
+    // Loss-prevention trail of cart actions, null when disabled
+    private AuditLog audit;
+
+    // Carts on hold, null when the store could not be opened
+    private ParkedCarts parkedCarts;
+    private LoyaltyMembers loyaltyMembers;
+    private JButton btnMember;
+
+    // Crash-resume mirror of the open cart, null when disabled
+    private CartMirror cartMirror;
+
+    // Columnar history of sold lines for analytics, null when disabled
+    private SalesHistory salesHistory;
+
+    // Local sales journal and its shipper to the store aggregator, null when disabled
+    private SalesJournal salesJournal;
+    private JournalShipper journalShipper;
+
+    // Product grid, filled in the background after the frame is shown
+    private static final int PRODUCT_ICON_W = 140;
+    private static final int PRODUCT_ICON_H = 110;
+    private JPanel productPanel;
+    private final JLabel gridPlaceholder = new JLabel("Loading products...", SwingConstants.CENTER);
+    private final Map<Integer, JButton> tiles = new HashMap<>(); // Product tiles by product id
+    private static final String TILE_LABEL = "pos.tileLabel";
+
+    // Background of the group header rows in the cart table
+    private static final Color GROUP_HEADER_BG = new Color(225, 235, 250);
 
     /**
      * Constructs the main POS application.
      * Initializes the product catalog and sets up the user interface.
+     * Must be called on the EDT; product buttons are added after {@link #show()}.
      */
     public Main() {
-        createSampleCatalog();
+        loadCatalog();
+        // Before the mirror, which restores the member of a resumed cart
+        openLoyaltyMembers();
+        openCartMirror();
+        // After the restore, so a resumed cart is not undone line by line
+        cartHistory = new CartCommandLog(cart, id -> catalog.get().get(id), 1024);
+        checkout.addListener(orderRouting);
+        checkout.addListener((orderNo, order) -> {
+            cartHistory.reset();
+            cartSold = true;
+        });
+        openSalesHistory();
+        openSalesJournal();
+        openParkedCarts();
+        openAuditLog();
+        RenderQuality.get().install();
         initUI();
+        RenderQuality.get().addListener(this::renderQualityChanged);
+        if (!cart.isEmpty()) refreshCartView();
+    }
+
+    /**
+     * Opt-in crash resume: with pos.cart.mirror=&lt;file&gt; the open cart is mirrored into a
+     * memory-mapped file and restored from it on startup.
+     * pos.cart.durability picks PROCESS (default), PERIODIC or SYNC.
+     */
+    private void openCartMirror() {
+        String path = System.getProperty("pos.cart.mirror");
+        if (path == null || path.isEmpty()) return;
+        try {
+            CartMirror.Durability durability = CartMirror.Durability.valueOf(
+                    System.getProperty("pos.cart.durability", "PROCESS").toUpperCase());
+            cartMirror = CartMirror.open(Paths.get(path), durability);
+            cartMirror.restore(cart, catalog.get().getProducts(), this::memberByCard);
+            cart.addListener(cartMirror);
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("Cart mirror disabled: " + ex.getMessage());
+            cartMirror = null;
+        }
+    }
+
+    /**
+     * Opt-in sales history: with pos.history.dir=&lt;dir&gt; every confirmed sale is recorded
+     * into columnar day segments in that directory (see SalesQuery for the questions it answers).
+     */
+    private void openSalesHistory() {
+        String path = System.getProperty("pos.history.dir");
+        if (path == null || path.isEmpty()) return;
+        try {
+            salesHistory = new SalesHistory(Paths.get(path));
+            checkout.addListener(salesHistory);
+            // Seal the open day on exit so it is not lost
+            SalesHistory h = salesHistory;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    h.close();
+                } catch (IOException ex) {
+                    System.err.println("Sales history not sealed: " + ex.getMessage());
+                }
+            }, "Sales-History-Close"));
+        } catch (IOException ex) {
+            System.err.println("Sales history disabled: " + ex.getMessage());
+            salesHistory = null;
+        }
+    }
+
+    /**
+     * Opt-in store replication: with pos.journal.file=&lt;file&gt; every confirmed sale is appended
+     * to a local journal first, and with pos.journal.aggregator=&lt;host:port&gt; the journal is
+     * shipped to the store aggregator as terminal pos.terminal.id (default lane-1).
+     * The lane keeps selling while the aggregator is unreachable.
+     * With pos.journal.dir=&lt;dir&gt; instead the journal is kept in segments of
+     * pos.journal.segmentMB (default 16), gzipped once sealed unless pos.journal.compress=false,
+     * and the oldest are deleted beyond pos.journal.maxMB or pos.journal.maxAgeDays (once shipped).
+     */
+    private void openSalesJournal() {
+        String path = System.getProperty("pos.journal.file");
+        String dir = System.getProperty("pos.journal.dir");
+        if ((path == null || path.isEmpty()) && (dir == null || dir.isEmpty())) return;
+        try {
+            boolean sync = Boolean.getBoolean("pos.journal.sync");
+            if (dir != null && !dir.isEmpty()) {
+                SalesJournal.Policy policy = new SalesJournal.Policy(
+                        Long.getLong("pos.journal.segmentMB", 16) << 20,
+                        !"false".equals(System.getProperty("pos.journal.compress")),
+                        Long.getLong("pos.journal.maxMB", 0) << 20,
+                        Long.getLong("pos.journal.maxAgeDays", 0) * 24 * 60 * 60 * 1000);
+                salesJournal = SalesJournal.openSegmented(Paths.get(dir), sync, policy);
+            } else {
+                salesJournal = SalesJournal.open(Paths.get(path), sync);
+            }
+            checkout.addListener(salesJournal);
+        } catch (IOException ex) {
+            System.err.println("Sales journal disabled: " + ex.getMessage());
+            salesJournal = null;
+            return;
+        }
+        String target = System.getProperty("pos.journal.aggregator");
+        if (target == null || target.isEmpty()) return;
+        int colon = target.lastIndexOf(':');
+        try {
+            InetSocketAddress addr = new InetSocketAddress(target.substring(0, colon),
+                    Integer.parseInt(target.substring(colon + 1)));
+            journalShipper = new JournalShipper(salesJournal, System.getProperty("pos.terminal.id", "lane-1"), addr);
+            journalShipper.start();
+            // Never delete what the aggregator has not acknowledged
+            salesJournal.setRetentionFloor(journalShipper::getAcked);
+        } catch (RuntimeException ex) {
+            System.err.println("Journal shipping disabled, bad pos.journal.aggregator '" + target + "': " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Receipt numbers from pos.receipt.file, reserved pos.receipt.block (default 100) at a
+     * time; lanes sharing the file get disjoint numbers. Without the file, order numbers
+     * restart at 1 with every run.
+     */
+    private static ReceiptNumbers openReceiptNumbers() {
+        String path = System.getProperty("pos.receipt.file");
+        if (path == null || path.isEmpty()) return null;
+        try {
+            return new ReceiptNumbers(Paths.get(path), Integer.getInteger("pos.receipt.block", 100));
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("Receipt numbers file disabled: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Park/recall store in pos.park.dir (default ./parked); terminals that share the
+     * directory can recall each other's carts.
+     */
+    private void openParkedCarts() {
+        try {
+            parkedCarts = new ParkedCarts(Paths.get(System.getProperty("pos.park.dir", "parked")));
+        } catch (IOException ex) {
+            System.err.println("Park/recall disabled: " + ex.getMessage());
+            parkedCarts = null;
+        }
+    }
+
+    /**
+     * Opt-in loyalty lookup: pos.loyalty.file=&lt;index&gt; maps a member index built with
+     * {@link LoyaltyMembers#build}.
+     */
+    private void openLoyaltyMembers() {
+        String path = System.getProperty("pos.loyalty.file");
+        if (path == null || path.isEmpty()) return;
+        try {
+            loyaltyMembers = LoyaltyMembers.open(Paths.get(path));
+        } catch (IOException ex) {
+            System.err.println("Loyalty lookup disabled: " + ex.getMessage());
+            loyaltyMembers = null;
+        }
+    }
+
+    // Member by the card key kept with a parked or mirrored cart, or null
+    private LoyaltyMembers.Member memberByCard(long card) {
+        return loyaltyMembers == null ? null : loyaltyMembers.find(card);
+    }
+
+    /**
+     * Opt-in audit trail: with pos.audit.dir=&lt;dir&gt; every cart action is logged there
+     * by a background writer, in files rolled at pos.audit.rollMB (default 16).
+     * pos.audit.sync=true forces each batch to disk.
+     */
+    private void openAuditLog() {
+        String path = System.getProperty("pos.audit.dir");
+        if (path == null || path.isEmpty()) return;
+        try {
+            audit = new AuditLog(Paths.get(path), 1 << 16, Long.getLong("pos.audit.rollMB", 16L) << 20,
+                    Boolean.getBoolean("pos.audit.sync"));
+            tableModel.setAuditLog(audit);
+            checkout.addListener((orderNo, order) -> {
+                audit.log(AuditLog.CHECKOUT, 0, order.size(), (int) order.getSubtotalCents(), orderNo);
+                LoyaltyMembers.Member m = order.getMember();
+                if (m != null) audit.log(AuditLog.MEMBER, 0, 0, m.pointsFor(order.getSubtotal() * (1 + TAX_RATE)), m.getCard());
+            });
+            // Write out the last events on exit
+            AuditLog a = audit;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    a.close();
+                } catch (IOException ex) {
+                    System.err.println("Audit log not closed: " + ex.getMessage());
+                }
+            }, "Audit-Close"));
+        } catch (IOException ex) {
+            System.err.println("Audit log disabled: " + ex.getMessage());
+            audit = null;
+        }
+    }
+
+    // Logs an event when the audit trail is on
+    private void audit(int type, int productId, int before, int after, long ref) {
+        if (audit != null) audit.log(type, productId, before, after, ref);
     }
 
     /**
      * Predefeined Catalog Samples
      */
-    private void createSampleCatalog() {
-        catalog.add(new FoodItem("Burger", 5.99));
-        catalog.add(new FoodItem("Fries", 2.49));
-        catalog.add(new FoodItem("Hotdog", 3.25));
-        catalog.add(new DrinkItem("Coke", 1.50));
-        catalog.add(new DrinkItem("Coffee", 2.25));
-        catalog.add(new DrinkItem("Water", 1.00));
+    private List<Product> createSampleCatalog() {
+        List<Product> catalog = new ArrayList<>();
+        catalog.add(new FoodItem(1, "Burger", 5.99));
+        catalog.add(new FoodItem(2, "Fries", 2.49));
+        catalog.add(new FoodItem(3, "Hotdog", 3.25));
+        catalog.add(new DrinkItem(4, "Coke", 1.50));
+        catalog.add(new DrinkItem(5, "Coffee", 2.25));
+        catalog.add(new DrinkItem(6, "Water", 1.00));
+        return catalog;
+    }
+
+    /**
+     * Loads the catalog from pos.catalog.file when set (creating it from the samples if missing)
+     * and watches it for changes; otherwise uses the samples.
+     */
+    private void loadCatalog() {
+        String path = System.getProperty("pos.catalog.file");
+        if (path == null || path.isEmpty()) {
+            catalog.set(new Catalog(1, createSampleCatalog()));
+            return;
+        }
+        Path file = Paths.get(path);
+        try {
+            if (!Files.exists(file)) CatalogFile.write(file, createSampleCatalog());
+            catalog.set(new Catalog(1, CatalogFile.read(file)));
+            catalogWatcher = new CatalogWatcher(file, catalog, this::applyCatalogChange);
+            catalogWatcher.start();
+        } catch (IOException ex) {
+            System.err.println("Catalog file not usable, using samples: " + ex.getMessage());
+            catalog.set(new Catalog(1, createSampleCatalog()));
+        }
+    }
+
+    /**
+     * Applies a reloaded catalog on the EDT: only tiles and cart lines of changed products are touched.
+     */
+    private void applyCatalogChange(Catalog old, Catalog current, Catalog.Diff diff) {
+        for (Product p : diff.getRemoved()) {
+            JButton tile = tiles.remove(p.getId());
+            if (tile != null) productPanel.remove(tile);
+        }
+        boolean cartChanged = false;
+        for (Product p : diff.getChanged()) {
+            JButton tile = tiles.get(p.getId());
+            if (tile != null) {
+                Product before = old.get(p.getId());
+                if (before == null || !before.getName().equals(p.getName())) {
+                    tile.setIcon(new ImageIcon(drawProductImage(p.getName(), PRODUCT_ICON_W, PRODUCT_ICON_H, 0f)));
+                }
+                updateTileText(tile, p);
+            }
+            cartChanged |= cart.replaceProduct(p);
+        }
+        if (!diff.getRemoved().isEmpty()) {
+            productPanel.revalidate();
+            productPanel.repaint();
+        }
+        if (!diff.getAdded().isEmpty()) {
+            loadProductTiles(diff.getAdded());
+        }
+        if (cartChanged) refreshCartView();
     }
 
     /**
@@ -83,62 +384,30 @@ public class Main {
     private void initUI() {
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        // Root panel with gradient background and watermark
+        // Root panel with gradient background and watermark, cached until resized
         JPanel root = new JPanel(new BorderLayout()) {
+            private final CachedLayer layer = new CachedLayer(true, Main::paintRootBackground);
+
             @Override
             protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                int w = getWidth();
-                int h = getHeight();
-
-                // Main background gradient
-                g2.setPaint(new GradientPaint(0, 0, new Color(255, 250, 245),
-                        w, h, new Color(245, 255, 255)));
-                g2.fillRect(0, 0, w, h);
-
-                // "POS" watermark text
-                g2.setFont(g2.getFont().deriveFont(Font.BOLD, 72f));
-                g2.setColor(new Color(0, 0, 0, 12));
-                FontMetrics fm = g2.getFontMetrics();
-                String wm = "POS";
-                int sx = (w - fm.stringWidth(wm)) / 2;
-                int sy = h / 2 + fm.getAscent() / 2 - 30;
-                g2.drawString(wm, sx, sy);
-
-                // Decorative sketch element in bottom-right corner
-                int crw = 120, crh = 64;
-                int cx = w - crw - 24;
-                int cy = h - crh - 24;
-                g2.setColor(new Color(0,0,0,20));
-                g2.fillRoundRect(cx, cy, crw, crh, 8, 8);
-                g2.setColor(new Color(255,255,255,40));
-                g2.fillRect(cx + 10, cy + 10, crw - 20, 28);
+                layer.paint(this, g);
             }
         };
         frame.setContentPane(root);
 
         // Create product catalog panel with grid layout
-        JPanel productPanel = new JPanel(new GridLayout(0, 3, 12, 12)) {
+        productPanel = new JPanel(new GridLayout(0, 3, 12, 12)) {
+            private final CachedLayer layer = new CachedLayer(true, Main::paintProductBackground);
+
             @Override
             protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                int w = getWidth();
-                int h = getHeight();
-                Color c1 = new Color(255, 245, 238);
-                Color c2 = new Color(255, 230, 240);
-                g2.setPaint(new GradientPaint(0, 0, c1, w, h, c2));
-                g2.fillRect(0, 0, w, h);
+                layer.paint(this, g);
             }
         };
         productPanel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
 
-        // Create buttons for each product in the catalog
-        for (Product p : catalog) {
-            JButton b = createProductButton(p);
-            productPanel.add(b);
-        }
+        // Product buttons are added by loadProductGrid() once their icons are drawn
+        productPanel.add(gridPlaceholder);
 
         // Assemble left panel (product catalog)
         JPanel left = new JPanel(new BorderLayout());
@@ -153,7 +422,11 @@ public class Main {
         JPanel right = new JPanel(new BorderLayout());
         right.setOpaque(false);
         JPanel cartTitlePanel = createTitlePanel("Cart", new Color(180, 220, 255));
-        right.add(cartTitlePanel, BorderLayout.NORTH);
+        JPanel cartHead = new JPanel(new BorderLayout());
+        cartHead.setOpaque(false);
+        cartHead.add(cartTitlePanel, BorderLayout.CENTER);
+        cartHead.add(createCartViewControls(), BorderLayout.SOUTH);
+        right.add(cartHead, BorderLayout.NORTH);
 
         // Cart table design
         cartTable.setRowHeight(52);
@@ -180,12 +453,12 @@ public class Main {
         right.add(tablePane, BorderLayout.CENTER);
 
         cartTable.getTableHeader().setDefaultRenderer(new HeaderRenderer());
-        Timer headerTimer = new Timer(80, ev -> {
+        // Started once the product grid is interactive
+        headerTimer = new Timer(80, ev -> {
             headerPhase += 0.03f;
             if (headerPhase > 1f) headerPhase = 0f;
             cartTable.getTableHeader().repaint();
         });
-        headerTimer.start();
 
         // Totals display panel
         JPanel totals = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 8));
@@ -230,16 +503,54 @@ public class Main {
         StyledButton btnClear = new StyledButton("Clear Cart", new Color(220, 80, 80), new Color(200, 40, 40));
 
         // Button actions
-        btnCheckout.addActionListener(e -> {
-            CheckoutDialog dlg = new CheckoutDialog(frame, cart, TAX_RATE);
-            dlg.setVisible(true);
-        });
+        btnCheckout.addActionListener(e -> openCheckout());
 
         btnClear.addActionListener(e -> {
-            cart.clear();
-            refreshCartView();
+            int units = 0;
+            for (int i = 0; i < cart.size(); i++) units += cart.getQuantity(i);
+            audit(AuditLog.CLEAR, 0, cart.size(), units, 0);
+            clearCart();
+        });
+
+        // Undo/redo, also on Ctrl+Z / Ctrl+Y
+        StyledButton btnUndo = new StyledButton("Undo", new Color(150, 150, 160), new Color(120, 120, 135));
+        StyledButton btnRedo = new StyledButton("Redo", new Color(150, 150, 160), new Color(120, 120, 135));
+        btnUndo.addActionListener(e -> undoCartEdit());
+        btnRedo.addActionListener(e -> redoCartEdit());
+        JRootPane rootPane = frame.getRootPane();
+        rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("control Z"), "pos.undo");
+        rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("control Y"), "pos.redo");
+        rootPane.getActionMap().put("pos.undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undoCartEdit();
+            }
+        });
+        rootPane.getActionMap().put("pos.redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redoCartEdit();
+            }
         });
 
+        // Hold the order and start a new one, or bring a held one back
+        StyledButton btnPark = new StyledButton("Park", new Color(230, 160, 60), new Color(210, 130, 30));
+        StyledButton btnRecall = new StyledButton("Recall", new Color(230, 160, 60), new Color(210, 130, 30));
+        btnPark.addActionListener(e -> parkCart());
+        btnRecall.addActionListener(e -> recallCart());
+        btnPark.setEnabled(parkedCarts != null);
+        btnRecall.setEnabled(parkedCarts != null);
+
+        // Loyalty member for the order, by phone or card number
+        btnMember = new StyledButton("Member", new Color(140, 110, 200), new Color(110, 80, 180));
+        btnMember.addActionListener(e -> attachMember());
+        btnMember.setEnabled(loyaltyMembers != null);
+
+        controls.add(btnUndo);
+        controls.add(btnRedo);
+        controls.add(btnPark);
+        controls.add(btnRecall);
+        controls.add(btnMember);
         controls.add(btnClear);
         controls.add(btnCheckout);
 
@@ -256,34 +567,266 @@ public class Main {
         // Windows setup size
         frame.setSize(800, 500);
         frame.setLocationRelativeTo(null);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                StartupMetrics.markFirstFrame();
+            }
+        });
+    }
+
+    /**
+     * Draws the product icons on a background thread and fills the product grid when they are ready.
+     * The frame is already on screen at this point, so startup is not held up by icon rendering.
+     */
+    private void loadProductGrid() {
+        loadProductTiles(catalog.get().getProducts());
+    }
+
+    // Draws icons for the given products in the background, then appends their tiles
+    private void loadProductTiles(List<Product> source) {
+        final List<Product> products = new ArrayList<>(source);
+        new SwingWorker<List<BufferedImage>, Void>() {
+            @Override
+            protected List<BufferedImage> doInBackground() {
+                List<BufferedImage> icons = new ArrayList<>(products.size());
+                for (Product p : products) {
+                    icons.add(drawProductImage(p.getName(), PRODUCT_ICON_W, PRODUCT_ICON_H, 0f));
+                }
+                return icons;
+            }
+
+            @Override
+            protected void done() {
+                List<BufferedImage> icons;
+                try {
+                    icons = get();
+                } catch (Exception ex) {
+                    // Fall back to drawing on the EDT
+                    icons = new ArrayList<>();
+                    for (Product p : products) {
+                        icons.add(drawProductImage(p.getName(), PRODUCT_ICON_W, PRODUCT_ICON_H, 0f));
+                    }
+                }
+                productPanel.remove(gridPlaceholder);
+                for (int i = 0; i < products.size(); i++) {
+                    JButton b = createProductButton(products.get(i), icons.get(i));
+                    tiles.put(products.get(i).getId(), b);
+                    productPanel.add(b);
+                }
+                productPanel.revalidate();
+                productPanel.repaint();
+                if (gridLoaded) return;
+                gridLoaded = true;
+                if (RenderQuality.get().animate()) headerTimer.start();
+                // Interactive once the new buttons have been laid out and painted
+                SwingUtilities.invokeLater(() -> {
+                    StartupMetrics.markInteractive();
+                    preloadCheckout();
+                });
+            }
+        }.execute();
+    }
+
+    private void clearCart() {
+        cart.clear();
+        if (cartSold) {
+            // Undoing this clear would bring the sold lines back
+            cartHistory.reset();
+            cartSold = false;
+        }
+        refreshCartView();
+    }
+
+    private void parkCart() {
+        if (cart.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "The cart is empty.", "Park", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        try {
+            long ticket = parkedCarts.park(cart, System.currentTimeMillis());
+            audit(AuditLog.PARK, 0, cart.size(), 0, ticket);
+            clearCart();
+            cartHistory.reset();
+            JOptionPane.showMessageDialog(frame, "Order parked as ticket #" + ticket, "Park", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(frame, "Could not park the order: " + ex.getMessage(), "Park", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Picks a parked cart; an open cart is parked first, so nothing is lost
+    private void recallCart() {
+        long swapped = -1;
+        try {
+            parkedCarts.refresh();
+            List<ParkedCarts.Entry> parked = parkedCarts.list();
+            if (parked.isEmpty()) {
+                JOptionPane.showMessageDialog(frame, "No parked orders.", "Recall", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            Object choice = JOptionPane.showInputDialog(frame, "Ticket", "Recall", JOptionPane.PLAIN_MESSAGE,
+                    null, parked.toArray(), parked.get(0));
+            if (!(choice instanceof ParkedCarts.Entry)) return;
+            long ticket = ((ParkedCarts.Entry) choice).getTicket();
+            // Claimed before the open cart is touched, so a failed recall leaves it as it was
+            ParkedCarts.Claim recalled = parkedCarts.claim(ticket);
+            if (recalled == null) {
+                JOptionPane.showMessageDialog(frame, "That order was already recalled.", "Recall", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            if (!cart.isEmpty()) {
+                try {
+                    swapped = parkedCarts.park(cart, System.currentTimeMillis());
+                } catch (IOException ex) {
+                    recalled.release();
+                    throw ex;
+                }
+                audit(AuditLog.PARK, 0, cart.size(), 0, swapped);
+            }
+            clearCart();
+            Catalog current = catalog.get();
+            int lines = recalled.restore(cart, current::get, this::memberByCard);
+            audit(AuditLog.RECALL, 0, 0, lines, ticket);
+            cartHistory.reset();
+            refreshCartView();
+            if (swapped >= 0) {
+                JOptionPane.showMessageDialog(frame, "The open order was parked as ticket #" + swapped, "Recall", JOptionPane.INFORMATION_MESSAGE);
+            }
+        } catch (IOException ex) {
+            String parked = swapped >= 0 ? "\nThe open order was parked as ticket #" + swapped : "";
+            JOptionPane.showMessageDialog(frame, "Could not recall the order: " + ex.getMessage() + parked, "Recall", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void undoCartEdit() {
+        if (cartTable.isEditing()) cartTable.getCellEditor().cancelCellEditing();
+        long from = cartHistory.getCursor();
+        if (cartHistory.undo()) {
+            // One record per replayed command, newest first, as it was replayed
+            for (long s = from - 1; s >= cartHistory.getCursor(); s--) {
+                audit(AuditLog.UNDO, cartHistory.getProductId(s), cartHistory.getQuantityAfter(s), cartHistory.getQuantityBefore(s), s);
+            }
+            refreshCartView();
+        }
+    }
+
+    private void redoCartEdit() {
+        if (cartTable.isEditing()) cartTable.getCellEditor().cancelCellEditing();
+        long from = cartHistory.getCursor();
+        if (cartHistory.redo()) {
+            for (long s = from; s < cartHistory.getCursor(); s++) {
+                audit(AuditLog.REDO, cartHistory.getProductId(s), cartHistory.getQuantityBefore(s), cartHistory.getQuantityAfter(s), s);
+            }
+            refreshCartView();
+        }
+    }
+
+    // Looks up a member by the number the cashier types or scans; an empty answer detaches
+    private void attachMember() {
+        String number = JOptionPane.showInputDialog(frame, "Phone or card number", "Member", JOptionPane.PLAIN_MESSAGE);
+        if (number == null) return;
+        if (number.trim().isEmpty()) {
+            cart.setMember(null);
+        } else {
+            LoyaltyMembers.Member m = loyaltyMembers.find(number);
+            if (m == null) {
+                JOptionPane.showMessageDialog(frame, "No member with number " + number.trim(), "Member", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            cart.setMember(m);
+        }
+        refreshCartView();
+    }
+
+    // CheckoutDialog is only loaded on first use or by the idle preload below
+    private void openCheckout() {
+        CheckoutDialog dlg = new CheckoutDialog(frame, cart.snapshot(), TAX_RATE, checkout);
+        dlg.setVisible(true);
+    }
+
+    // Loads CheckoutDialog off the EDT after startup so the first checkout does not pay for it
+    private static void preloadCheckout() {
+        Thread t = new Thread(() -> {
+            try {
+                Class.forName("POS.CheckoutDialog", true, Main.class.getClassLoader());
+            } catch (ClassNotFoundException ignored) {}
+        }, "Checkout-Preload");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    // Window background: gradient, "POS" watermark and the corner sketch
+    static void paintRootBackground(Graphics2D g2, int w, int h) {
+        // Main background gradient
+        g2.setPaint(RenderQuality.get().paint(0, 0, new Color(255, 250, 245),
+                w, h, new Color(245, 255, 255)));
+        g2.fillRect(0, 0, w, h);
+
+        // "POS" watermark text
+        g2.setFont(g2.getFont().deriveFont(Font.BOLD, 72f));
+        g2.setColor(new Color(0, 0, 0, 12));
+        FontMetrics fm = g2.getFontMetrics();
+        String wm = "POS";
+        int sx = (w - fm.stringWidth(wm)) / 2;
+        int sy = h / 2 + fm.getAscent() / 2 - 30;
+        g2.drawString(wm, sx, sy);
+
+        // Decorative sketch element in bottom-right corner
+        int crw = 120, crh = 64;
+        int cx = w - crw - 24;
+        int cy = h - crh - 24;
+        g2.setColor(new Color(0,0,0,20));
+        g2.fillRoundRect(cx, cy, crw, crh, 8, 8);
+        g2.setColor(new Color(255,255,255,40));
+        g2.fillRect(cx + 10, cy + 10, crw - 20, 28);
+    }
+
+    // Product grid background
+    static void paintProductBackground(Graphics2D g2, int w, int h) {
+        Color c1 = new Color(255, 245, 238);
+        Color c2 = new Color(255, 230, 240);
+        g2.setPaint(RenderQuality.get().paint(0, 0, c1, w, h, c2));
+        g2.fillRect(0, 0, w, h);
+    }
+
+    // Rounded gradient behind section titles
+    static void paintTitleBackground(Graphics2D g2, int w, int h, Color accent) {
+        RenderQuality.get().hints(g2);
+        g2.setPaint(RenderQuality.get().paint(0, 0, accent, w, 0, accent.darker()));
+        g2.fillRoundRect(0, 0, w, h, 12, 12);
+    }
+
+    // Rounded gradient body of a StyledButton
+    static void paintButtonBackground(Graphics2D g2, int w, int h, Color c1) {
+        RenderQuality.get().hints(g2);
+        Color c2 = c1.darker();
+        g2.setPaint(RenderQuality.get().paint(0, 0, c1, 0, h, c2));
+        g2.fillRoundRect(0, 0, w, h, 14, 14);
     }
 
     // Product buttons
-    private JButton createProductButton(Product p) {
-        int w = 140, h = 110;
-        BufferedImage img = drawProductImage(p.getName(), w, h, 0f);
+    private JButton createProductButton(Product p, BufferedImage img) {
+        int w = PRODUCT_ICON_W, h = PRODUCT_ICON_H;
         JButton b = new JButton(new ImageIcon(img));
         b.setPreferredSize(new Dimension(w + 20, h + 40));
-        b.setToolTipText(p.getName() + " — ₱" + String.format("%.2f", p.getPrice()));
         b.setFocusPainted(false);
         b.setContentAreaFilled(true);
         b.setBackground(new Color(250, 250, 250));
         b.setBorder(new LineBorder(new Color(220, 220, 220), 2, true));
 
-        // Handle product addition to cart
+        // Handle product addition to cart; the current catalog version decides the price
+        final int productId = p.getId();
         b.addActionListener(e -> {
-            cart.addProduct(p);
+            Product cur = catalog.get().get(productId);
+            if (cur == null) return;
+            cart.addProduct(cur);
             refreshCartView();
 
             // Trigger flash animation on the corresponding cart row
-            int idx = -1;
-            for (int i = 0; i < cart.getItems().size(); i++) {
-                if (cart.getItems().get(i).getProduct().getName().equals(p.getName())) {
-                    idx = i;
-                    break;
-                }
-            }
-            if (idx >= 0) {
+            int idx = cart.indexOf(cur);
+            audit(AuditLog.SCAN, productId, idx < 0 ? 0 : cart.getQuantity(idx) - 1, idx < 0 ? 0 : cart.getQuantity(idx), 0);
+            if (idx >= 0 && RenderQuality.get().animate()) {
                 flashRow = idx;
                 flashPhase = 0f;
                 if (flashTimer == null) {
@@ -305,22 +848,33 @@ public class Main {
         });
 
         // Add product name and price label
-        JLabel nameLabel = new JLabel(p.getName() + "  ₱" + String.format("%.2f", p.getPrice()), SwingConstants.CENTER);
+        JLabel nameLabel = new JLabel("", SwingConstants.CENTER);
         nameLabel.setFont(nameLabel.getFont().deriveFont(12f));
         nameLabel.setForeground(new Color(70, 70, 70));
         nameLabel.setOpaque(false);
 
         b.setLayout(new BorderLayout());
         b.add(nameLabel, BorderLayout.SOUTH);
+        b.putClientProperty(TILE_LABEL, nameLabel);
+        updateTileText(b, p);
 
         return b;
     }
 
+    // Tooltip and name/price label of a product tile
+    private void updateTileText(JButton tile, Product p) {
+        tile.setToolTipText(p.getName() + " — ₱" + String.format("%.2f", p.getPrice()));
+        JLabel nameLabel = (JLabel) tile.getClientProperty(TILE_LABEL);
+        nameLabel.setText(p.getName() + "  ₱" + String.format("%.2f", p.getPrice()));
+    }
+
     // Product icons
     private BufferedImage drawProductImage(String name, int w, int h, float phase) {
+        IconRenderEvent ev = new IconRenderEvent();
+        ev.begin();
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = img.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        RenderQuality.get().hints(g);
 
         // Transparent background
         g.setColor(new Color(255, 255, 255, 0));
@@ -394,6 +948,13 @@ public class Main {
         }
 
         g.dispose();
+        if (ev.shouldCommit()) {
+            ev.product = name;
+            ev.source = "Main.drawProductImage";
+            ev.width = w;
+            ev.height = h;
+            ev.commit();
+        }
         return img;
     }
 
@@ -402,6 +963,15 @@ public class Main {
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
             JLabel lbl = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
             String name = value != null ? value.toString() : "";
+            if (tableModel.isHeader(table.convertRowIndexToModel(row))) {
+                // Group header: no product icon
+                lbl.setIcon(null);
+                lbl.setText(name);
+                lbl.setFont(lbl.getFont().deriveFont(Font.BOLD));
+                lbl.setBackground(GROUP_HEADER_BG);
+                lbl.setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+                return lbl;
+            }
             BufferedImage ic = drawProductImage(name, 48, 48, 0f);
             lbl.setIcon(new ImageIcon(ic));
             lbl.setText(" " + name);
@@ -413,7 +983,11 @@ public class Main {
     }
 
     private class ActionButtonRenderer extends JButton implements TableCellRenderer {
+        private final JLabel headerCell = new JLabel();
+
         public ActionButtonRenderer() {
+            headerCell.setOpaque(true);
+            headerCell.setBackground(GROUP_HEADER_BG);
             setOpaque(true);
             setForeground(Color.white);
             setText("−");
@@ -421,6 +995,7 @@ public class Main {
 
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            if (tableModel.isHeader(table.convertRowIndexToModel(row))) return headerCell;
             setBackground(new Color(200, 100, 60));
             setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
             return this;
@@ -453,16 +1028,12 @@ public class Main {
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            int modelRow = tableRef.convertRowIndexToModel(currentRow);
-            if (modelRow >= 0 && modelRow < cart.getItems().size()) {
+            int line = tableModel.cartIndexAt(tableRef.convertRowIndexToModel(currentRow));
+            if (line >= 0 && line < cart.size()) {
                 // Decrement quantity or remove item if quantity is 1
-                CartItem ci = cart.getItems().get(modelRow);
-                int q = ci.getQuantity();
-                if (q > 1) {
-                    ci.setQuantity(q - 1);
-                } else {
-                    cart.removeProduct(ci.getProduct());
-                }
+                int before = cart.getQuantity(line);
+                audit(AuditLog.REMOVE, cart.getProduct(line).getId(), before, before - 1, 0);
+                cart.setQuantity(line, before - 1);
                 refreshCartView();
             }
             fireEditingStopped();
@@ -472,12 +1043,16 @@ public class Main {
     private class StyledButton extends JButton {
         private final Color base;
         private final Color accent;
+        private final CachedLayer baseLayer;
+        private final CachedLayer hoverLayer;
         private boolean hover = false;
 
         public StyledButton(String text, Color base, Color accent) {
             super(text);
             this.base = base;
             this.accent = accent;
+            this.baseLayer = new CachedLayer(false, (g2, w, h) -> paintButtonBackground(g2, w, h, this.base));
+            this.hoverLayer = new CachedLayer(false, (g2, w, h) -> paintButtonBackground(g2, w, h, this.accent));
             setForeground(Color.white);
             setFocusPainted(false);
             setContentAreaFilled(false);
@@ -502,17 +1077,13 @@ public class Main {
 
         @Override
         protected void paintComponent(Graphics g) {
+            // Cached gradient body for each hover state, text drawn on top
+            (hover ? hoverLayer : baseLayer).paint(this, g);
             Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            RenderQuality.get().hints(g2);
             int w = getWidth();
             int h = getHeight();
 
-            // Draw gradient background
-            Color c1 = hover ? accent : base;
-            Color c2 = c1.darker();
-            g2.setPaint(new GradientPaint(0, 0, c1, 0, h, c2));
-            g2.fillRoundRect(0, 0, w, h, 14, 14);
-
             // Draw button text
             FontMetrics fm = g2.getFontMetrics();
             int strW = fm.stringWidth(getText());
@@ -523,6 +1094,22 @@ public class Main {
         }
     }
 
+    // Sort order and grouping of the cart table
+    private JPanel createCartViewControls() {
+        JPanel p = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        p.setOpaque(false);
+        JComboBox<CartTableModel.Order> order = new JComboBox<>(CartTableModel.Order.values());
+        order.setSelectedItem(tableModel.getOrder());
+        order.addActionListener(e -> tableModel.setOrder((CartTableModel.Order) order.getSelectedItem()));
+        JCheckBox group = new JCheckBox("Group by type", tableModel.isGrouped());
+        group.setOpaque(false);
+        group.addActionListener(e -> tableModel.setGrouped(group.isSelected()));
+        p.add(new JLabel("Sort"));
+        p.add(order);
+        p.add(group);
+        return p;
+    }
+
     private JPanel createTitlePanel(String text, Color accent) {
         JPanel p = new JPanel(new BorderLayout());
         p.setOpaque(false);
@@ -533,14 +1120,11 @@ public class Main {
 
         // Create rounded background panel
         JPanel bg = new JPanel(new BorderLayout()) {
+            private final CachedLayer layer = new CachedLayer(false, (g2, w, h) -> paintTitleBackground(g2, w, h, accent));
+
             @Override
             protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                int w = getWidth();
-                int h = getHeight();
-                g2.setPaint(new GradientPaint(0, 0, accent, w, 0, accent.darker()));
-                g2.fillRoundRect(0, 0, w, h, 12, 12);
+                layer.paint(this, g);
                 super.paintComponent(g);
             }
         };
@@ -552,7 +1136,54 @@ public class Main {
         return p;
     }
 
+    // Stops or resumes the header animation as the render quality tier allows, and redraws
+    // the tile icons when antialiasing was switched
+    private void renderQualityChanged(RenderQuality.Tier old, RenderQuality.Tier current) {
+        if (!RenderQuality.get().animate()) {
+            headerTimer.stop();
+            headerPhase = 0f;
+        } else if (gridLoaded && !headerTimer.isRunning()) {
+            headerTimer.start();
+        }
+        if ((old == RenderQuality.Tier.NO_ANTIALIAS) != (current == RenderQuality.Tier.NO_ANTIALIAS)) redrawTileIcons();
+    }
+
+    // Draws the icons of the loaded tiles again in the background, like the first load
+    private void redrawTileIcons() {
+        final Catalog current = catalog.get();
+        final List<Integer> ids = new ArrayList<>(tiles.keySet());
+        final boolean antialias = RenderQuality.get().antialias();
+        new SwingWorker<List<BufferedImage>, Void>() {
+            @Override
+            protected List<BufferedImage> doInBackground() {
+                List<BufferedImage> icons = new ArrayList<>(ids.size());
+                for (int id : ids) {
+                    Product p = current.get(id);
+                    icons.add(p == null ? null : drawProductImage(p.getName(), PRODUCT_ICON_W, PRODUCT_ICON_H, 0f));
+                }
+                return icons;
+            }
+
+            @Override
+            protected void done() {
+                // A later change has its own redraw under way
+                if (antialias != RenderQuality.get().antialias()) return;
+                List<BufferedImage> icons;
+                try {
+                    icons = get();
+                } catch (Exception ex) {
+                    return;
+                }
+                for (int i = 0; i < ids.size(); i++) {
+                    JButton tile = tiles.get(ids.get(i));
+                    if (tile != null && icons.get(i) != null) tile.setIcon(new ImageIcon(icons.get(i)));
+                }
+            }
+        }.execute();
+    }
+
     private void pulsePanel(JPanel panel, Color highlight) {
+        if (!RenderQuality.get().animate()) return;
         Color original = panel.getBackground();
         int steps = 8;
         final int[] s = {0};
@@ -598,14 +1229,16 @@ public class Main {
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
             JLabel lbl = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
 
-            // Set alternating row colors
+            // Set alternating row colors; group headers get their own band
             Color even = new Color(250, 250, 255);
             Color odd = new Color(245, 245, 245);
             int modelRow = table.convertRowIndexToModel(row);
-            Color bg = (modelRow % 2 == 0) ? even : odd;
+            int line = tableModel.cartIndexAt(modelRow);
+            Color bg = line < 0 ? GROUP_HEADER_BG : (modelRow % 2 == 0) ? even : odd;
+            lbl.setFont(line < 0 ? table.getFont().deriveFont(Font.BOLD) : table.getFont());
 
-            // Apply flash animation if this row is being highlighted
-            if (modelRow == flashRow) {
+            // Apply flash animation if this row is being highlighted (flashRow is a cart line)
+            if (line >= 0 && line == flashRow) {
                 float p = (float) Math.sin(flashPhase * Math.PI);
                 bg = blend(bg, new Color(200, 255, 200), p);
             }
@@ -638,7 +1271,9 @@ public class Main {
 
     // Refreshes initialization of cart display and totals
     private void refreshCartView() {
-        tableModel.fireTableDataChanged();
+        CartRefreshEvent ev = new CartRefreshEvent();
+        ev.begin();
+        // The table model follows cart events itself; only the totals are refreshed here
         double subtotal = cart.getSubtotal();
         double tax = subtotal * TAX_RATE;
         double total = subtotal + tax;
@@ -647,19 +1282,92 @@ public class Main {
         lblSubtotalAmt.setText(String.format("₱%.2f", subtotal));
         lblTaxAmt.setText(String.format("₱%.2f", tax));
         lblTotalAmt.setText(String.format("₱%.2f", total));
+        if (btnMember != null) {
+            btnMember.setText(cart.getMember() == null ? "Member" : cart.getMember().getName());
+        }
 
         // Animate the total panel to draw attention
         if (tileTotal != null) {
             pulsePanel(tileTotal, new Color(200, 255, 200));
         }
+        if (ev.shouldCommit()) {
+            ev.cartSize = cart.size();
+            ev.subtotal = subtotal;
+            ev.commit();
+        }
     }
 
-    // Display program
+    // Display program, then build the product grid in the background
     public void show() {
-        SwingUtilities.invokeLater(() -> frame.setVisible(true));
+        SwingUtilities.invokeLater(() -> {
+            frame.setVisible(true);
+            loadProductGrid();
+            // Station screens for lanes that drive the kitchen and bar
+            if (Boolean.getBoolean("pos.kitchen.display")) {
+                KitchenDisplay.open(orderRouting, OrderRingBuffer.KITCHEN, "Kitchen");
+                KitchenDisplay.open(orderRouting, OrderRingBuffer.BAR, "Bar");
+            }
+            if (Boolean.getBoolean("pos.customer.display")) {
+                CustomerDisplay.open(cart, TAX_RATE);
+            }
+            // Sales dashboard for this lane's confirmed checkouts
+            if (Boolean.getBoolean("pos.dashboard")) {
+                SalesWindow sales = new SalesWindow();
+                CheckoutListener feed = (orderNo, order) -> sales.record(System.currentTimeMillis(), order);
+                checkout.addListener(feed);
+                SalesDashboard d = SalesDashboard.open("Sales", sales, id -> {
+                    Product p = catalog.get().get(id);
+                    return p == null ? "#" + id : p.getName();
+                });
+                d.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(WindowEvent e) {
+                        checkout.removeListener(feed);
+                    }
+                });
+            }
+        });
+    }
+
+    // Hooks for LoadGenerator's live mode; EDT only
+
+    Cart getCart() {
+        return cart;
+    }
+
+    CartTableModel getTableModel() {
+        return tableModel;
+    }
+
+    List<Product> getProducts() {
+        return catalog.get().getProducts();
+    }
+
+    // Product tile, or null while the grid is still loading
+    JButton getProductTile(int productId) {
+        return tiles.get(productId);
+    }
+
+    /**
+     * Checkout as the dialog does it, without the modal wait: builds the dialog for the current
+     * cart, confirms the order through the pipeline, closes the dialog and clears the cart.
+     */
+    long checkoutAndClear() {
+        CartSnapshot order = cart.snapshot();
+        CheckoutDialog dlg = new CheckoutDialog(frame, order, TAX_RATE, checkout);
+        long orderNo = checkout.confirm(order);
+        dlg.dispose();
+        clearCart();
+        return orderNo;
     }
 
     public static void main(String[] args) {
-        new Main().show();
+        // Record EDT stalls longer than the threshold (0 disables)
+        long stallMs = Long.getLong("pos.watchdog.thresholdMs", 200L);
+        if (stallMs > 0) {
+            EdtWatchdog.install(stallMs, Integer.getInteger("pos.watchdog.capacity", 64));
+        }
+        StartupMetrics.markMain();
+        SwingUtilities.invokeLater(() -> new Main().show());
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package POS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// One CartItem object per line, in an ArrayList
+class ObjectCartStorage implements CartStorage {
+    private final List<CartItem> items = new ArrayList<>();
+    private final List<CartItem> view = Collections.unmodifiableList(items);
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public Product product(int index) {
+        return items.get(index).getProduct();
+    }
+
+    @Override
+    public int quantity(int index) {
+        return items.get(index).getQuantity();
+    }
+
+    @Override
+    public double total(int index) {
+        return items.get(index).getTotalPrice();
+    }
+
+    @Override
+    public int indexOf(Product p) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getProduct().getName().equals(p.getName())) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int append(Product p, int quantity) {
+        items.add(new CartItem(p, quantity));
+        return items.size() - 1;
+    }
+
+    @Override
+    public void setQuantity(int index, int quantity) {
+        items.get(index).setQuantity(quantity);
+    }
+
+    @Override
+    public void setProduct(int index, Product p) {
+        items.set(index, new CartItem(p, items.get(index).getQuantity()));
+    }
+
+    @Override
+    public void remove(int index) {
+        items.remove(index);
+    }
+
+    @Override
+    public double subtotal() {
+        double sum = 0.0;
+        for (CartItem ci : items) {
+            sum = sum + ci.getTotalPrice();
+        }
+        return sum;
+    }
+
+    @Override
+    public CartItem item(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public List<CartItem> view() {
+        return view;
+    }
+}
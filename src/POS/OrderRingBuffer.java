@@ -0,0 +1,247 @@
+package POS;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Routes confirmed order lines to the kitchen and bar stations.
+ * A preallocated ring of {@link OrderLine} slots with one producer (the checkout thread)
+ * and any number of station consumers, each seeing every line and keeping the ones for
+ * its station. Publishing fills existing slots and moves a cursor, so nothing is
+ * allocated per order line; the producer only waits when the slowest consumer is a
+ * full ring behind.
+ */
+public class OrderRingBuffer implements CheckoutListener {
+    // Stations, usable as a bit mask
+    public static final int KITCHEN = 1;
+    public static final int BAR = 2;
+
+    // One routed line; slots are reused, so handlers must copy what they keep
+    public static final class OrderLine {
+        private long orderNo;
+        private Product product;
+        private int quantity;
+        private int station;
+        private int lineIndex;
+        private int lineCount;
+        private long publishNanos;
+
+        public long getOrderNo() {
+            return orderNo;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public int getStation() {
+            return station;
+        }
+
+        // Position of the line within its order
+        public int getLineIndex() {
+            return lineIndex;
+        }
+
+        public int getLineCount() {
+            return lineCount;
+        }
+
+        // System.nanoTime() at publish, for latency measurement
+        public long getPublishNanos() {
+            return publishNanos;
+        }
+    }
+
+    // Receives the lines of one station on the consumer thread. Must not wait for the EDT:
+    // the producer may be the EDT, itself waiting for this consumer to move on
+    public interface StationHandler {
+        void onLine(OrderLine line);
+
+        // End of a batch of available lines
+        default void onBatchEnd() {
+        }
+    }
+
+    // Cache-line padded sequence
+    static class LhsPadding {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class Value extends LhsPadding {
+        volatile long value;
+    }
+
+    static final class Sequence extends Value {
+        long p9, p10, p11, p12, p13, p14, p15;
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        Sequence(long initial) {
+            value = initial;
+        }
+
+        long get() {
+            return (long) VALUE.getAcquire(this);
+        }
+
+        void set(long v) {
+            VALUE.setRelease(this, v);
+        }
+    }
+
+    private final OrderLine[] slots;
+    private final int mask;
+    private final Sequence cursor = new Sequence(-1);
+    private volatile Sequence[] gating = new Sequence[0];
+
+    // Producer state
+    private long claimed = -1;
+    private long cachedGate = -1;
+
+    public OrderRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        slots = new OrderLine[capacity];
+        for (int i = 0; i < capacity; i++) slots[i] = new OrderLine();
+        mask = capacity - 1;
+    }
+
+    public static int stationOf(Product p) {
+        return p instanceof DrinkItem ? BAR : KITCHEN;
+    }
+
+    @Override
+    public void checkoutConfirmed(long orderNo, CartSnapshot order) {
+        publish(orderNo, order);
+    }
+
+    /**
+     * Publishes all lines of an order. Single producer: call from one thread only.
+     */
+    public void publish(long orderNo, CartSnapshot order) {
+        int n = order.size();
+        int done = 0;
+        while (done < n) {
+            int batch = Math.min(n - done, slots.length);
+            long hi = claimed + batch;
+            waitForCapacity(hi);
+            long now = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                Product product = order.getProduct(done + i);
+                OrderLine dst = slots[(int) (claimed + 1 + i) & mask];
+                dst.orderNo = orderNo;
+                dst.product = product;
+                dst.quantity = order.getQuantity(done + i);
+                dst.station = stationOf(product);
+                dst.lineIndex = done + i;
+                dst.lineCount = n;
+                dst.publishNanos = now;
+            }
+            claimed = hi;
+            cursor.set(hi);
+            done += batch;
+        }
+    }
+
+    private void waitForCapacity(long hi) {
+        long wrap = hi - slots.length;
+        if (wrap <= cachedGate) return;
+        long min = minGating(hi);
+        while (wrap > min) {
+            LockSupport.parkNanos(1_000L);
+            min = minGating(hi);
+        }
+        cachedGate = min;
+    }
+
+    private long minGating(long fallback) {
+        long min = fallback;
+        for (Sequence s : gating) min = Math.min(min, s.get());
+        return min;
+    }
+
+    /**
+     * Starts a consumer thread for the given stations (bit mask). It sees lines published from now on.
+     */
+    public synchronized StationConsumer addConsumer(String name, int stations, StationHandler handler) {
+        StationConsumer c = new StationConsumer(name, stations, handler, new Sequence(cursor.get()));
+        Sequence[] g = Arrays.copyOf(gating, gating.length + 1);
+        g[g.length - 1] = c.sequence;
+        gating = g;
+        c.thread.start();
+        return c;
+    }
+
+    synchronized void removeGating(Sequence s) {
+        Sequence[] g = new Sequence[gating.length - 1];
+        int j = 0;
+        for (Sequence x : gating) if (x != s && j < g.length) g[j++] = x;
+        gating = g;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    // Consumer thread for one or more stations
+    public final class StationConsumer implements Runnable {
+        private final int stations;
+        private final StationHandler handler;
+        private final Sequence sequence;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private StationConsumer(String name, int stations, StationHandler handler, Sequence sequence) {
+            this.stations = stations;
+            this.handler = handler;
+            this.sequence = sequence;
+            this.thread = new Thread(this, "Station-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (running) {
+                long available = cursor.get();
+                if (available < next) {
+                    // Spin briefly, then back off; orders arrive at human speed
+                    if (++idle < 100) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(idle < 200 ? 10_000L : 200_000L);
+                    }
+                    continue;
+                }
+                idle = 0;
+                for (long s = next; s <= available; s++) {
+                    OrderLine line = slots[(int) s & mask];
+                    if ((line.station & stations) != 0) handler.onLine(line);
+                }
+                handler.onBatchEnd();
+                sequence.set(available);
+                next = available + 1;
+            }
+        }
+
+        // Stops the consumer and releases its hold on the producer
+        public void halt() {
+            running = false;
+            removeGating(sequence);
+        }
+    }
+}
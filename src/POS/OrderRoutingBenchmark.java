@@ -0,0 +1,81 @@
+package POS;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Throughput and publish-to-consume latency of the kitchen/bar ring buffer,
+ * plus bytes allocated by the publishing thread (expected: none per line).
+ *
+ * Usage: java -cp out/production/POS POS.OrderRoutingBenchmark [orders] [linesPerOrder]
+ */
+public class OrderRoutingBenchmark {
+    // Consumer that only records latency into a preallocated array
+    private static final class Recorder implements OrderRingBuffer.StationHandler {
+        final long[] latency;
+        volatile int count;
+
+        Recorder(int max) {
+            latency = new long[max];
+        }
+
+        @Override
+        public void onLine(OrderRingBuffer.OrderLine line) {
+            int c = count;
+            if (c < latency.length) latency[c] = System.nanoTime() - line.getPublishNanos();
+            count = c + 1;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int linesPerOrder = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        // Orders alternate food and drink lines
+        Cart cart = new Cart();
+        for (int i = 0; i < linesPerOrder; i++) {
+            cart.addProduct(i % 2 == 0 ? new FoodItem(i + 1, "Food" + i, 3.0) : new DrinkItem(i + 1, "Drink" + i, 1.5));
+        }
+        CartSnapshot order = cart.snapshot();
+        int perStation = orders * ((linesPerOrder + 1) / 2);
+
+        OrderRingBuffer ring = new OrderRingBuffer(4096);
+        Recorder kitchen = new Recorder(perStation);
+        Recorder bar = new Recorder(perStation);
+        OrderRingBuffer.StationConsumer ck = ring.addConsumer("Kitchen", OrderRingBuffer.KITCHEN, kitchen);
+        OrderRingBuffer.StationConsumer cb = ring.addConsumer("Bar", OrderRingBuffer.BAR, bar);
+
+        // Warm up
+        for (int i = 0; i < 50_000; i++) ring.publish(i, order);
+        while (kitchen.count < 50_000 * ((linesPerOrder + 1) / 2)) Thread.sleep(1);
+        kitchen.count = 0;
+        bar.count = 0;
+
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long alloc0 = mx.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < orders; i++) ring.publish(i, order);
+        long t1 = System.nanoTime();
+        long alloc1 = mx.getThreadAllocatedBytes(tid);
+        while (kitchen.count < perStation || bar.count < linesPerOrder / 2 * orders) Thread.sleep(1);
+        long t2 = System.nanoTime();
+        ck.halt();
+        cb.halt();
+
+        long lines = (long) orders * linesPerOrder;
+        System.out.printf("orders=%d lines=%d%n", orders, lines);
+        System.out.printf("publish: %.1f M lines/s, end-to-end: %.1f M lines/s%n",
+                lines * 1e3 / (t1 - t0), lines * 1e3 / (t2 - t0));
+        System.out.printf("producer allocation: %d bytes (%.3f bytes/line)%n", alloc1 - alloc0, (alloc1 - alloc0) / (double) lines);
+        report("kitchen", kitchen.latency, Math.min(kitchen.count, perStation));
+        report("bar", bar.latency, Math.min(bar.count, perStation));
+    }
+
+    private static void report(String name, long[] latency, int n) {
+        long[] s = Arrays.copyOf(latency, n);
+        Arrays.sort(s);
+        System.out.printf("%s latency: p50=%.1f us p99=%.1f us p99.9=%.1f us max=%.1f us%n", name,
+                s[n / 2] / 1e3, s[(int) (n * 0.99)] / 1e3, s[(int) (n * 0.999)] / 1e3, s[n - 1] / 1e3);
+    }
+}
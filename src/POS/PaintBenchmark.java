@@ -0,0 +1,61 @@
+package POS;
+
+import javax.swing.JPanel;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Repaint cost of the static chrome layers, painted directly (before) and through
+ * {@link CachedLayer} (after). Runs headless into an offscreen back buffer.
+ *
+ * Usage: java -Djava.awt.headless=true -cp out/production/POS POS.PaintBenchmark [iterations]
+ */
+public class PaintBenchmark {
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        run("root background 800x500", 800, 500, true, Main::paintRootBackground, iterations);
+        run("product grid 400x420", 400, 420, true, Main::paintProductBackground, iterations);
+        run("title panel 380x40", 380, 40, false,
+                (g, w, h) -> Main.paintTitleBackground(g, w, h, new Color(255, 200, 160)), iterations);
+        run("styled button 110x36", 110, 36, false,
+                (g, w, h) -> Main.paintButtonBackground(g, w, h, new Color(80, 160, 220)), iterations);
+    }
+
+    private static void run(String name, int w, int h, boolean opaque, CachedLayer.Painter painter, int iterations) {
+        JPanel host = new JPanel();
+        host.setFont(new Font(Font.DIALOG, Font.PLAIN, 12));
+        host.setSize(w, h);
+        BufferedImage backBuffer = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        CachedLayer layer = new CachedLayer(opaque, painter);
+
+        // Warm up both paths
+        for (int i = 0; i < iterations / 4; i++) {
+            direct(backBuffer, host, painter, w, h);
+            cached(backBuffer, host, layer);
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) direct(backBuffer, host, painter, w, h);
+        long t1 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) cached(backBuffer, host, layer);
+        long t2 = System.nanoTime();
+
+        double before = (t1 - t0) / 1000.0 / iterations;
+        double after = (t2 - t1) / 1000.0 / iterations;
+        System.out.printf("%-26s direct %8.1f us  cached %8.1f us  (%.1fx)%n", name, before, after, before / after);
+    }
+
+    private static void direct(BufferedImage target, JPanel host, CachedLayer.Painter painter, int w, int h) {
+        Graphics2D g = target.createGraphics();
+        g.setFont(host.getFont());
+        painter.paint(g, w, h);
+        g.dispose();
+    }
+
+    private static void cached(BufferedImage target, JPanel host, CachedLayer layer) {
+        Graphics2D g = target.createGraphics();
+        layer.paint(host, g);
+        g.dispose();
+    }
+}
@@ -0,0 +1,333 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Carts put on hold under a ticket number, to be recalled later on this or another
+ * terminal sharing the directory.
+ * Each parked cart is one small file, &lt;ticket&gt;.park: magic, version, parked time,
+ * line count, then product id and quantity per line, the loyalty card key or 0 (all
+ * varints), and a CRC32. Version 1 files, without the card key, are still recalled.
+ * A ticket is claimed by creating its file (create-new, so two terminals never get the same
+ * number), and a recall claims the cart by renaming the file away (&lt;ticket&gt;.recalling-&lt;pid&gt;)
+ * before reading it, so a cart is recalled at most once. A claim left behind by a terminal
+ * that died mid-recall is parked again by {@link #refresh()} once it is a minute old.
+ * The index (ticket to summary) is kept in memory and picks up carts parked elsewhere on refresh.
+ */
+public class ParkedCarts {
+    private static final int MAGIC = 0x504F5350; // "POSP"
+    private static final byte VERSION = 2;
+    private static final String SUFFIX = ".park";
+    private static final String CLAIMED = ".recalling-";
+    private static final long STALE_CLAIM_MILLIS = 60_000;
+
+    // Summary of a parked cart, for listing
+    public static final class Entry {
+        private final long ticket;
+        private final long parkedAt;
+        private final int lines;
+        private final int units;
+
+        Entry(long ticket, long parkedAt, int lines, int units) {
+            this.ticket = ticket;
+            this.parkedAt = parkedAt;
+            this.lines = lines;
+            this.units = units;
+        }
+
+        public long getTicket() {
+            return ticket;
+        }
+
+        public long getParkedAt() {
+            return parkedAt;
+        }
+
+        public int getLines() {
+            return lines;
+        }
+
+        public int getUnits() {
+            return units;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + ticket + " (" + units + " items)";
+        }
+    }
+
+    // A parked cart taken out of the directory by claim(), to be restored or released
+    public final class Claim {
+        private final long ticket;
+        private final Path file;
+        private final ByteBuffer lines;
+        private final int n;
+        private final int version;
+        private final Entry entry; // Listing to put back on release, null if it was not indexed
+        private boolean done;
+
+        private Claim(long ticket, Path file, ByteBuffer lines, int n, int version, Entry entry) {
+            this.ticket = ticket;
+            this.file = file;
+            this.lines = lines;
+            this.n = n;
+            this.version = version;
+            this.entry = entry;
+        }
+
+        public long getTicket() {
+            return ticket;
+        }
+
+        /**
+         * Restores the lines into the given (empty) cart, resolving product ids through the
+         * catalog, and the loyalty member by card key; lines whose product is gone are dropped,
+         * and so is a member the lookup no longer finds. The parked cart is gone afterwards.
+         * Returns the number of lines restored.
+         */
+        public int restore(Cart cart, IntFunction<Product> catalog, LongFunction<LoyaltyMembers.Member> members) throws IOException {
+            synchronized (ParkedCarts.this) {
+                finish();
+                Files.delete(file);
+            }
+            int restored = 0;
+            for (int i = 0; i < n; i++) {
+                int id = (int) getVarLong(lines);
+                int qty = (int) getVarLong(lines);
+                Product p = catalog.apply(id);
+                if (p == null || qty <= 0) continue;
+                cart.addProduct(p);
+                cart.setQuantity(cart.indexOf(p), qty);
+                restored++;
+            }
+            long card = version >= 2 ? getVarLong(lines) : 0;
+            if (card != 0 && restored > 0) cart.setMember(members.apply(card));
+            return restored;
+        }
+
+        // Parks the cart again under its ticket, e.g. when the recall is abandoned
+        public void release() throws IOException {
+            synchronized (ParkedCarts.this) {
+                finish();
+                Files.move(file, file(ticket), StandardCopyOption.ATOMIC_MOVE);
+                if (entry != null) index.put(ticket, entry);
+            }
+        }
+
+        private void finish() {
+            if (done) throw new IllegalStateException("Ticket " + ticket + " was already restored or released");
+            done = true;
+        }
+    }
+
+    private final Path dir;
+    private final TreeMap<Long, Entry> index = new TreeMap<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buf = ByteBuffer.allocate(4096);
+
+    public ParkedCarts(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        refresh();
+    }
+
+    /**
+     * Parks the cart's lines under a new ticket and returns the ticket. The cart is left
+     * as it is; the caller clears it.
+     */
+    public synchronized long park(Cart cart, long timeMillis) throws IOException {
+        int n = cart.size();
+        encode(cart, n, timeMillis);
+        int units = 0;
+        for (int i = 0; i < n; i++) units += cart.getQuantity(i);
+        long ticket = index.isEmpty() ? 1 : index.lastKey() + 1;
+        while (true) {
+            try (FileChannel ch = FileChannel.open(file(ticket), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) ch.write(buf);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // Taken by another terminal
+                ticket++;
+            }
+        }
+        index.put(ticket, new Entry(ticket, timeMillis, n, units));
+        return ticket;
+    }
+
+    private void encode(Cart cart, int n, long timeMillis) {
+        int max = 4 + 1 + 10 + 5 + n * 10 + 10 + 4;
+        if (buf.capacity() < max) buf = ByteBuffer.allocate(Math.max(max, buf.capacity() * 2));
+        buf.clear();
+        buf.putInt(MAGIC);
+        buf.put(VERSION);
+        putVarLong(buf, timeMillis);
+        putVarLong(buf, n);
+        for (int i = 0; i < n; i++) {
+            putVarLong(buf, cart.getProduct(i).getId() & 0xFFFFFFFFL);
+            putVarLong(buf, cart.getQuantity(i));
+        }
+        putVarLong(buf, cart.getMember() == null ? 0 : cart.getMember().getCard());
+        crc.reset();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+    }
+
+    /**
+     * Takes a parked cart out of the directory so no other terminal can recall it, and checks
+     * it can be read. Returns null when the ticket is not parked (any more).
+     */
+    public synchronized Claim claim(long ticket) throws IOException {
+        Path claimed = dir.resolve(ticket + CLAIMED + ProcessHandle.current().pid());
+        try {
+            Files.move(file(ticket), claimed, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            index.remove(ticket);
+            return null;
+        }
+        byte[] data;
+        ByteBuffer b;
+        int n;
+        try {
+            // The rename kept the parked time; the claim's age counts from now
+            Files.setLastModifiedTime(claimed, FileTime.fromMillis(System.currentTimeMillis()));
+            data = Files.readAllBytes(claimed);
+            b = ByteBuffer.wrap(data);
+            n = header(b, data, ticket);
+        } catch (IOException e) {
+            // Leave it parked for another try
+            Files.move(claimed, file(ticket), StandardCopyOption.ATOMIC_MOVE);
+            throw e;
+        }
+        return new Claim(ticket, claimed, b, n, data[4], index.remove(ticket));
+    }
+
+    // Checks magic, version and CRC; leaves b after the parked time and returns the line count
+    private static int header(ByteBuffer b, byte[] data, long ticket) throws IOException {
+        if (data.length < 9 || b.getInt() != MAGIC || !supported(b.get())) {
+            throw new IOException("Ticket " + ticket + ": not a parked cart");
+        }
+        CRC32 c = new CRC32();
+        c.update(data, 0, data.length - 4);
+        if ((int) c.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+            throw new IOException("Ticket " + ticket + ": damaged or still being written");
+        }
+        getVarLong(b);
+        return (int) getVarLong(b);
+    }
+
+    /**
+     * Re-reads the directory: adds carts parked by other terminals and drops the ones they
+     * recalled, after parking again the claims left behind by a crashed recall. Cost is one
+     * small read per newly seen cart.
+     */
+    public synchronized void refresh() throws IOException {
+        reclaim();
+        Map<Long, Entry> seen = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                long ticket;
+                try {
+                    ticket = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Entry e = index.get(ticket);
+                if (e == null) e = readEntry(f, ticket);
+                if (e != null) seen.put(ticket, e);
+            }
+        }
+        index.clear();
+        index.putAll(seen);
+    }
+
+    // A live recall holds its claim for milliseconds; an older one belongs to a terminal that died
+    private void reclaim() throws IOException {
+        long stale = System.currentTimeMillis() - STALE_CLAIM_MILLIS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + CLAIMED + "*")) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                long ticket;
+                try {
+                    ticket = Long.parseLong(name.substring(0, name.indexOf(CLAIMED)));
+                    if (Files.getLastModifiedTime(f).toMillis() > stale) continue;
+                    Files.move(f, file(ticket), StandardCopyOption.ATOMIC_MOVE);
+                } catch (NumberFormatException | NoSuchFileException | FileAlreadyExistsException e) {
+                    // Not a claim, or already restored or reclaimed elsewhere
+                }
+            }
+        }
+    }
+
+    private static Entry readEntry(Path f, long ticket) {
+        try {
+            byte[] data = Files.readAllBytes(f);
+            ByteBuffer b = ByteBuffer.wrap(data);
+            if (data.length < 9 || b.getInt() != MAGIC || !supported(b.get())) return null;
+            long parkedAt = getVarLong(b);
+            int n = (int) getVarLong(b);
+            int units = 0;
+            for (int i = 0; i < n; i++) {
+                getVarLong(b);
+                units += (int) getVarLong(b);
+            }
+            return new Entry(ticket, parkedAt, n, units);
+        } catch (IOException | RuntimeException e) {
+            // Recalled meanwhile, or still being written; the next refresh sees it
+            return null;
+        }
+    }
+
+    private static boolean supported(byte version) {
+        return version >= 1 && version <= VERSION;
+    }
+
+    // Parked carts, oldest ticket first
+    public synchronized List<Entry> list() {
+        return new ArrayList<>(index.values());
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private Path file(long ticket) {
+        return dir.resolve(ticket + SUFFIX);
+    }
+
+    private static void putVarLong(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    private static long getVarLong(ByteBuffer b) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte x = b.get();
+            v |= (long) (x & 0x7F) << shift;
+            if (x >= 0) return v;
+        }
+    }
+}
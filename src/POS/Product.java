@@ -1,13 +1,19 @@
 package POS;
 
 public abstract class Product {
+    protected int id;
     protected String name;
     protected double price;
 
-    public Product(String name, double price) {
+    public Product(int id, String name, double price) {
+        this.id = id;
         this.name = name;
         this.price = price;
     }
+    // GetId (catalog number, stable across restarts)
+    public int getId() {
+        return id;
+    }
     // GetName
     public String getName() {
         return name;
@@ -19,6 +25,6 @@ public abstract class Product {
     //ToString
     @Override
     public String toString() {
-        return "Product{name='" + name + "', price=" + price + "}";
+        return "Product{id=" + id + ", name='" + name + "', price=" + price + "}";
     }
 }
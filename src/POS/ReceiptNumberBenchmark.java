@@ -0,0 +1,127 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receipt numbers per second across threads: {@link ReceiptNumbers} (hi/lo blocks in a
+ * file) against a shared AtomicLong and a synchronized counter, neither of which survives
+ * a restart. Then checks that the numbers handed out by concurrent threads are unique,
+ * and that a reopened file continues above everything handed out before.
+ *
+ * Usage: java -cp out/production/POS POS.ReceiptNumberBenchmark [maxThreads] [millisPerRun] [blockSize]
+ */
+public class ReceiptNumberBenchmark {
+    interface Source {
+        long next() throws IOException;
+    }
+
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        int block = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        Path dir = Files.createTempDirectory("pos-receipts");
+        Path file = dir.resolve("receipts.seq");
+
+        AtomicLong atomic = new AtomicLong();
+        long[] counter = new long[1];
+        Source locked = () -> {
+            synchronized (counter) {
+                return ++counter[0];
+            }
+        };
+        try (ReceiptNumbers hilo = new ReceiptNumbers(file, block)) {
+            System.out.printf("%8s %16s %16s %16s%n", "threads", "hi/lo ids/s", "AtomicLong ids/s", "synchronized/s");
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double h = run(threads, millis, hilo::next);
+                double a = run(threads, millis, atomic::incrementAndGet);
+                double s = run(threads, millis, locked);
+                System.out.printf("%8d %16.0f %16.0f %16.0f%n", threads, h, a, s);
+            }
+            System.out.println("hi/lo file writes: " + hilo.getReservations() + " (block " + block + ")");
+        }
+
+        // Uniqueness across threads and across a reopen
+        int threads = Math.max(2, maxThreads);
+        int perThread = 200_000;
+        long[][] ids = new long[threads][perThread];
+        long maxBefore;
+        try (ReceiptNumbers hilo = new ReceiptNumbers(file, block)) {
+            Thread[] ts = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                long[] mine = ids[t];
+                ts[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++) mine[i] = hilo.next();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                ts[t].start();
+            }
+            for (Thread t : ts) t.join();
+        }
+        long[] all = new long[threads * perThread];
+        boolean increasing = true;
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < perThread; i++) increasing &= ids[t][i] > ids[t][i - 1];
+            System.arraycopy(ids[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        int duplicates = 0;
+        for (int i = 1; i < all.length; i++) if (all[i] == all[i - 1]) duplicates++;
+        maxBefore = all[all.length - 1];
+        long afterRestart;
+        try (ReceiptNumbers hilo = new ReceiptNumbers(file, block)) {
+            afterRestart = hilo.next();
+        }
+        System.out.printf("%d ids from %d threads: %d duplicates, increasing per thread: %s; after reopen %d > %d: %s%n",
+                all.length, threads, duplicates, increasing, afterRestart, maxBefore, afterRestart > maxBefore);
+
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    // Ids per second with the given number of threads pulling as fast as they can
+    private static double run(int threads, long millis, Source source) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        long[] counts = new long[threads * 16]; // Padded: one counter per 128 bytes
+        Thread[] ts = new Thread[threads];
+        long[] deadline = new long[1];
+        for (int t = 0; t < threads; t++) {
+            final int slot = t * 16;
+            ts[t] = new Thread(() -> {
+                long n = 0;
+                long x = 0;
+                try {
+                    start.await();
+                    long end = deadline[0];
+                    while (true) {
+                        for (int i = 0; i < 1024; i++) x += source.next();
+                        n += 1024;
+                        if (System.nanoTime() >= end) break;
+                    }
+                } catch (InterruptedException | IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                counts[slot] = n;
+                sink += x;
+            });
+            ts[t].start();
+        }
+        long t0 = System.nanoTime();
+        deadline[0] = t0 + millis * 1_000_000L;
+        start.countDown();
+        for (Thread t : ts) t.join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        long total = 0;
+        for (int t = 0; t < threads; t++) total += counts[t * 16];
+        return total / seconds;
+    }
+}
@@ -0,0 +1,121 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Unique receipt (transaction) numbers without a lock or a disk write per sale.
+ * Hi/lo allocation: the file records the highest number ever reserved; a thread that runs
+ * out of numbers reserves the next block of blockSize under a file lock (so lanes sharing
+ * the file on a backend get disjoint blocks) and forces the new high mark to disk before
+ * using it. Numbers are then handed out from the thread's own block with no shared state.
+ * After a restart allocation continues above the recorded mark, so a number is never
+ * reused; the unused rest of the blocks held at exit is skipped (gaps are expected).
+ * Numbers increase per thread; across threads they are unique but interleave by block.
+ *
+ * File: two 32 byte slots (magic, sequence, high mark, CRC32), written alternately,
+ * so a torn write leaves the other slot intact.
+ */
+public class ReceiptNumbers implements AutoCloseable {
+    private static final int MAGIC = 0x504F5352; // "POSR"
+    private static final int SLOT = 32;
+
+    // A thread's current block: next number to hand out, and the last one in the block
+    private static final class Block {
+        long next = 1;
+        long last = 0;
+    }
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+    private final ByteBuffer slotBuf = ByteBuffer.allocate(SLOT);
+    private final CRC32 crc = new CRC32();
+    private long slotSeq;
+
+    // Statistics
+    private volatile long reservations;
+
+    public ReceiptNumbers(Path file, int blockSize) throws IOException {
+        if (blockSize < 1) throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.blockSize = blockSize;
+    }
+
+    // Next number for the calling thread
+    public long next() throws IOException {
+        Block b = blocks.get();
+        if (b.next > b.last) reserve(b);
+        return b.next++;
+    }
+
+    // Takes the next block for the calling thread
+    private synchronized void reserve(Block b) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            long hi = readHigh();
+            long newHi = Math.addExact(hi, blockSize);
+            writeHigh(newHi);
+            channel.force(false);
+            b.next = hi + 1;
+            b.last = newHi;
+            reservations++;
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Highest reserved number on disk (another process may have moved it)
+    private long readHigh() throws IOException {
+        long best = 0;
+        long bestSeq = -1;
+        for (int s = 0; s < 2; s++) {
+            slotBuf.clear();
+            while (slotBuf.hasRemaining() && channel.read(slotBuf, (long) s * SLOT + slotBuf.position()) > 0) {
+            }
+            if (slotBuf.position() < SLOT) continue;
+            slotBuf.flip();
+            crc.reset();
+            crc.update(slotBuf.array(), 0, 20);
+            if (slotBuf.getInt(0) != MAGIC || slotBuf.getInt(20) != (int) crc.getValue()) continue;
+            long seq = slotBuf.getLong(4);
+            if (seq > bestSeq) {
+                bestSeq = seq;
+                best = slotBuf.getLong(12);
+            }
+        }
+        slotSeq = Math.max(slotSeq, bestSeq);
+        return best;
+    }
+
+    private void writeHigh(long hi) throws IOException {
+        long seq = ++slotSeq;
+        slotBuf.clear();
+        slotBuf.putInt(MAGIC).putLong(seq).putLong(hi);
+        crc.reset();
+        crc.update(slotBuf.array(), 0, 20);
+        slotBuf.putInt((int) crc.getValue());
+        slotBuf.position(0).limit(SLOT);
+        long at = (seq & 1) * SLOT;
+        while (slotBuf.hasRemaining()) channel.write(slotBuf, at + slotBuf.position());
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    // Blocks reserved by this process (each one disk write)
+    public long getReservations() {
+        return reservations;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
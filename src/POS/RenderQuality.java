@@ -0,0 +1,252 @@
+package POS;
+
+import javax.swing.RepaintManager;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Window;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Rendering quality governor for slow terminals.
+ * A RepaintManager times every paint pass (one frame), and every two seconds the 95th
+ * percentile of the frames is compared with the budget (pos.render.budgetMs, default 17):
+ * over it, quality steps down one tier; under half of it for a few windows in a row, it
+ * steps back up. A Swing timer closes the windows, so an idle lane that paints almost
+ * nothing counts as calm and recovers too, as long as none of those few frames was over
+ * budget. A step up that is undone at once makes the next one wait twice as long, so a
+ * terminal at the edge does not flip every few seconds.
+ * Painting code asks for the current tier through {@link #animate()}, {@link #paint} and
+ * {@link #hints}; cached layers redraw themselves after a change.
+ * pos.render.quality pins a tier (full, no_animation, flat, no_antialias) instead of auto.
+ */
+public final class RenderQuality {
+    // From best to cheapest; each tier also drops what the ones before it dropped
+    public enum Tier { FULL, NO_ANIMATION, FLAT, NO_ANTIALIAS }
+
+    // Called on the EDT after the tier changed
+    public interface Listener {
+        void tierChanged(Tier old, Tier current);
+    }
+
+    private static final int WINDOW_MILLIS = 2_000;
+    private static final int MIN_FRAMES = 5;
+    private static final int CALM_WINDOWS = 3;
+    private static final int MAX_CALM_WINDOWS = 48;
+
+    private static final RenderQuality INSTANCE = create();
+
+    private final boolean adaptive;
+    private final long budgetNanos;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Tier tier;
+    private boolean installed;
+
+    // Current window, EDT only
+    private LatencyHistogram window = new LatencyHistogram();
+    private int calm;
+    private int calmNeeded = CALM_WINDOWS;
+    private boolean justSteppedUp;
+
+    // Last complete window, readable from any thread
+    private volatile long frames;
+    private volatile long p50Nanos;
+    private volatile long p95Nanos;
+    private volatile long maxNanos;
+    private volatile long stepDowns;
+    private volatile long stepUps;
+
+    private RenderQuality(Tier tier, boolean adaptive, long budgetNanos) {
+        this.tier = tier;
+        this.adaptive = adaptive;
+        this.budgetNanos = budgetNanos;
+    }
+
+    private static RenderQuality create() {
+        String q = System.getProperty("pos.render.quality", "auto");
+        long budget = (long) (Double.parseDouble(System.getProperty("pos.render.budgetMs", "17")) * 1_000_000L);
+        if (q.equalsIgnoreCase("auto")) return new RenderQuality(Tier.FULL, true, budget);
+        try {
+            return new RenderQuality(Tier.valueOf(q.toUpperCase()), false, budget);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown pos.render.quality '" + q + "', using auto");
+            return new RenderQuality(Tier.FULL, true, budget);
+        }
+    }
+
+    public static RenderQuality get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts timing paint passes. Call on the EDT before the first window is shown;
+     * later calls do nothing.
+     */
+    public void install() {
+        if (installed) return;
+        installed = true;
+        RepaintManager.setCurrentManager(new RepaintManager() {
+            @Override
+            public void paintDirtyRegions() {
+                long t0 = System.nanoTime();
+                super.paintDirtyRegions();
+                frame(System.nanoTime() - t0);
+            }
+        });
+        new Timer(WINDOW_MILLIS, e -> closeWindow()).start();
+    }
+
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    // Timers and fades may run
+    public boolean animate() {
+        return tier.compareTo(Tier.NO_ANIMATION) < 0;
+    }
+
+    // Gradients may be used; otherwise flat fills
+    public boolean gradients() {
+        return tier.compareTo(Tier.FLAT) < 0;
+    }
+
+    public boolean antialias() {
+        return tier.compareTo(Tier.NO_ANTIALIAS) < 0;
+    }
+
+    // Sets antialiasing on or off as the tier allows
+    public void hints(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                antialias() ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
+    // A gradient from c1 to c2, or the color halfway between them as a flat fill
+    public Paint paint(float x1, float y1, Color c1, float x2, float y2, Color c2) {
+        if (gradients()) return new GradientPaint(x1, y1, c1, x2, y2, c2);
+        return new Color((c1.getRed() + c2.getRed()) / 2, (c1.getGreen() + c2.getGreen()) / 2,
+                (c1.getBlue() + c2.getBlue()) / 2, (c1.getAlpha() + c2.getAlpha()) / 2);
+    }
+
+    // One paint pass took this long; EDT only
+    void frame(long nanos) {
+        window.record(nanos);
+    }
+
+    // Ends the current window and steps the tier; EDT only, every two seconds
+    void closeWindow() {
+        long n = window.count();
+        long p95 = window.percentile(0.95);
+        frames = n;
+        p50Nanos = window.percentile(0.5);
+        p95Nanos = p95;
+        long max = window.max();
+        maxNanos = max;
+        window = new LatencyHistogram();
+        if (!adaptive) return;
+        if (n < MIN_FRAMES) {
+            // Too few frames to judge a percentile. An idle lane is as calm as it gets, but a
+            // slow frame or two neither proves jank nor counts towards a step up
+            if (max > budgetNanos) {
+                calm = 0;
+                return;
+            }
+            p95 = 0;
+        }
+
+        Tier[] tiers = Tier.values();
+        int at = tier.ordinal();
+        if (p95 > budgetNanos) {
+            // A step up that did not hold: wait longer before the next one
+            if (justSteppedUp) calmNeeded = Math.min(MAX_CALM_WINDOWS, calmNeeded * 2);
+            calm = 0;
+            justSteppedUp = false;
+            if (at < tiers.length - 1) {
+                stepDowns++;
+                setTier(tiers[at + 1]);
+            }
+            return;
+        }
+        if (justSteppedUp) calmNeeded = CALM_WINDOWS;
+        justSteppedUp = false;
+        if (p95 < budgetNanos / 2 && at > 0) {
+            if (++calm >= calmNeeded) {
+                calm = 0;
+                justSteppedUp = true;
+                stepUps++;
+                setTier(tiers[at - 1]);
+            }
+        } else {
+            calm = 0;
+        }
+    }
+
+    /**
+     * Switches to a tier now (EDT only): listeners are told and every window is repainted,
+     * which also redraws the cached layers.
+     */
+    public void setTier(Tier next) {
+        Tier old = tier;
+        if (old == next) return;
+        tier = next;
+        RenderTierEvent ev = new RenderTierEvent();
+        if (ev.shouldCommit()) {
+            ev.from = old.name();
+            ev.to = next.name();
+            ev.p95Millis = p95Nanos / 1e6;
+            ev.frames = frames;
+            ev.commit();
+        }
+        for (Listener l : listeners) l.tierChanged(old, next);
+        for (Window w : Window.getWindows()) {
+            if (w.isDisplayable()) w.repaint();
+        }
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    // Frame statistics of the last complete two-second window
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP95Nanos() {
+        return p95Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getStepDowns() {
+        return stepDowns;
+    }
+
+    public long getStepUps() {
+        return stepUps;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%s, %d frames p50=%.1fms p95=%.1fms max=%.1fms, budget %.1fms, %d down %d up",
+                tier, adaptive ? "" : " (pinned)", frames, p50Nanos / 1e6, p95Nanos / 1e6, maxNanos / 1e6,
+                budgetNanos / 1e6, stepDowns, stepUps);
+    }
+}
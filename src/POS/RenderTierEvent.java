@@ -0,0 +1,27 @@
+package POS;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR: render quality tier change
+@Name("POS.RenderTier")
+@Label("Render Tier Change")
+@Category({"POS", "Render"})
+@Description("RenderQuality.setTier")
+@StackTrace(false)
+class RenderTierEvent extends jdk.jfr.Event {
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Frame p95 (ms)")
+    double p95Millis;
+
+    @Label("Frames")
+    long frames;
+}
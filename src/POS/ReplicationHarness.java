@@ -0,0 +1,162 @@
+package POS;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Runs several simulated terminals and one aggregator on localhost.
+ * Each terminal appends orders to its own journal at a fixed rate and ships it; a flapper
+ * drops a random terminal's link at intervals. At the end the harness waits for every
+ * journal to be acknowledged and reports throughput, replication lag (journal append to
+ * aggregator apply), reconnects, and whether each terminal's orders arrived exactly once
+ * and in order.
+ *
+ * Usage: java -cp out/production/POS POS.ReplicationHarness [terminals] [seconds] [ordersPerSecond] [flapMillis]
+ */
+public class ReplicationHarness {
+    // Per-terminal check of what the aggregator applied
+    private static final class Received {
+        long next = 1;
+        long records;
+        long outOfOrder;
+        final long[] lagMillis = new long[1 << 20];
+        int lagCount;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int terminals = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        long flapMillis = args.length > 3 ? Long.parseLong(args[3]) : 1_000;
+
+        Path root = Files.createTempDirectory("pos-replication");
+        Map<String, Received> received = new ConcurrentHashMap<>();
+        StoreAggregator aggregator = new StoreAggregator(0, root.resolve("aggregator"), (terminal, r) -> {
+            Received rc = received.computeIfAbsent(terminal, t -> new Received());
+            synchronized (rc) {
+                if (r.getOrderNo() != rc.next) rc.outOfOrder++;
+                rc.next = r.getOrderNo() + 1;
+                rc.records++;
+                if (rc.lagCount < rc.lagMillis.length) rc.lagMillis[rc.lagCount++] = System.currentTimeMillis() - r.getTimeMillis();
+            }
+        }).start();
+        InetSocketAddress addr = new InetSocketAddress("127.0.0.1", aggregator.getPort());
+
+        // A few fixed baskets to pick from
+        List<CartSnapshot> baskets = new ArrayList<>();
+        Random rnd = new Random(7);
+        for (int b = 0; b < 16; b++) {
+            Cart cart = new Cart();
+            int n = 1 + rnd.nextInt(6);
+            for (int i = 0; i < n; i++) {
+                int id = 1 + rnd.nextInt(40);
+                cart.addProduct(id % 3 == 0 ? new DrinkItem(id, "Drink" + id, 1.5) : new FoodItem(id, "Food" + id, 3.25));
+            }
+            baskets.add(cart.snapshot());
+        }
+
+        SalesJournal[] journals = new SalesJournal[terminals];
+        JournalShipper[] shippers = new JournalShipper[terminals];
+        Thread[] lanes = new Thread[terminals];
+        long[] produced = new long[terminals];
+        long stopAt = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int t = 0; t < terminals; t++) {
+            String id = "lane-" + (t + 1);
+            journals[t] = SalesJournal.open(root.resolve(id + ".journal"), false);
+            shippers[t] = new JournalShipper(journals[t], id, addr);
+            shippers[t].start();
+            final int lane = t;
+            lanes[t] = new Thread(() -> {
+                long interval = 1_000_000_000L / rate;
+                long next = System.nanoTime();
+                long orderNo = 0;
+                Random r = new Random(lane);
+                while (System.nanoTime() < stopAt) {
+                    try {
+                        journals[lane].append(++orderNo, System.currentTimeMillis(), baskets.get(r.nextInt(baskets.size())));
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    next += interval;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) LockSupport.parkNanos(wait);
+                }
+                produced[lane] = orderNo;
+            }, "Lane-" + (t + 1));
+            lanes[t].start();
+        }
+
+        // Link failures
+        Thread flapper = new Thread(() -> {
+            Random r = new Random(11);
+            while (System.nanoTime() < stopAt) {
+                LockSupport.parkNanos(flapMillis * 1_000_000L);
+                shippers[r.nextInt(terminals)].disconnect();
+            }
+        }, "Flapper");
+        flapper.setDaemon(true);
+        if (flapMillis > 0) flapper.start();
+
+        long start = System.nanoTime();
+        for (Thread l : lanes) l.join();
+        long produceEnd = System.nanoTime();
+        // Drain: wait until every journal is acknowledged
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        boolean drained = false;
+        while (!drained && System.nanoTime() < deadline) {
+            drained = true;
+            for (int t = 0; t < terminals; t++) drained &= shippers[t].getAcked() == journals[t].getEnd();
+            if (!drained) Thread.sleep(5);
+        }
+        long drainEnd = System.nanoTime();
+
+        long totalProduced = 0, totalRecords = 0, outOfOrder = 0, raw = 0, shipped = 0, batches = 0;
+        int reconnects = 0;
+        List<Long> lags = new ArrayList<>();
+        for (int t = 0; t < terminals; t++) {
+            totalProduced += produced[t];
+            Received rc = received.getOrDefault("lane-" + (t + 1), new Received());
+            totalRecords += rc.records;
+            outOfOrder += rc.outOfOrder;
+            for (int i = 0; i < rc.lagCount; i++) lags.add(rc.lagMillis[i]);
+            raw += shippers[t].getRawBytes();
+            shipped += shippers[t].getShippedBytes();
+            batches += shippers[t].getBatches();
+            reconnects += shippers[t].getReconnects();
+            if (aggregator.getOffset("lane-" + (t + 1)) != journals[t].getEnd()) {
+                System.out.println("lane-" + (t + 1) + ": replica at " + aggregator.getOffset("lane-" + (t + 1))
+                        + ", journal at " + journals[t].getEnd());
+            }
+        }
+        long[] sorted = lags.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        double elapsed = (drainEnd - start) / 1e9;
+        System.out.printf("terminals=%d produced=%d replicated=%d exactly-once=%s drained=%s (%.0f ms after the last sale)%n",
+                terminals, totalProduced, totalRecords, totalProduced == totalRecords && outOfOrder == 0, drained,
+                (drainEnd - produceEnd) / 1e6);
+        System.out.printf("throughput %.0f records/s, %.2f MB/s raw, %.2f MB/s on the wire (%.1fx), %d batches, %d reconnects, %.1f KB duplicates dropped%n",
+                totalRecords / elapsed, raw / elapsed / 1048576.0, shipped / elapsed / 1048576.0,
+                shipped == 0 ? 0.0 : raw / (double) shipped, batches, reconnects, aggregator.getDuplicateBytes() / 1024.0);
+        if (sorted.length > 0) {
+            System.out.printf("lag ms: p50=%d p99=%d max=%d%n", sorted[sorted.length / 2],
+                    sorted[(int) (sorted.length * 0.99)], sorted[sorted.length - 1]);
+        }
+
+        for (JournalShipper s : shippers) s.close();
+        for (SalesJournal j : journals) j.close();
+        aggregator.close();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package POS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Store-wide repricing of a large synthetic catalog with {@link CatalogRepricer}: time in
+ * the rule loops, total time to the next catalog version (unpacking, loops, new products,
+ * index), against the per-product way (new objects for every match, then a full
+ * {@link Catalog#diff}). Checks both give the same prices.
+ *
+ * Usage: java -cp out/production/POS POS.RepricingBenchmark [skus] [runs]
+ */
+public class RepricingBenchmark {
+    public static void main(String[] args) {
+        int skus = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<Product> products = new ArrayList<>(skus);
+        for (int i = 1; i <= skus; i++) {
+            double price = 0.50 + (i * 37 % 2_000) * 0.05;
+            products.add(i % 3 == 0 ? new DrinkItem(i, "Drink" + i, price) : new FoodItem(i, "Food" + i, price));
+        }
+        Catalog base = new Catalog(1, products);
+        List<CatalogRepricer.Rule> rules = Arrays.asList(
+                CatalogRepricer.Rule.parse("DRINK +5% round 0.25"),
+                CatalogRepricer.Rule.parse("FOOD ids 100000-199999 -10%"),
+                CatalogRepricer.Rule.parse("ALL ids 500000-500999 =9.99"));
+
+        long[] rule = new long[runs], total = new long[runs], naive = new long[runs];
+        CatalogRepricer.Result r = null;
+        Catalog slow = null;
+        for (int run = 0; run < runs; run++) {
+            long t0 = System.nanoTime();
+            r = CatalogRepricer.reprice(base, rules);
+            total[run] = System.nanoTime() - t0;
+            rule[run] = r.getRuleNanos();
+
+            t0 = System.nanoTime();
+            slow = perProduct(base, rules);
+            Catalog.Diff d = base.diff(slow);
+            naive[run] = System.nanoTime() - t0;
+            if (d.getChanged().size() != r.getDiff().getChanged().size()) throw new AssertionError("Diff sizes differ");
+        }
+        for (Product p : products) {
+            if (r.getCatalog().get(p.getId()).getPrice() != slow.get(p.getId()).getPrice()) {
+                throw new AssertionError("Price of " + p.getId() + " differs");
+            }
+        }
+        Arrays.sort(rule);
+        Arrays.sort(total);
+        Arrays.sort(naive);
+        System.out.printf("%d SKUs, %d rules, %d prices changed, %d cores%n", skus, rules.size(),
+                r.getDiff().getChanged().size(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("rule loops:          median %7.2f ms, best %7.2f ms%n", rule[runs / 2] / 1e6, rule[0] / 1e6);
+        System.out.printf("next version + diff: median %7.2f ms, best %7.2f ms%n", total[runs / 2] / 1e6, total[0] / 1e6);
+        System.out.printf("per product + diff:  median %7.2f ms, best %7.2f ms%n", naive[runs / 2] / 1e6, naive[0] / 1e6);
+    }
+
+    // The same rules one product at a time, building the catalog from scratch
+    private static Catalog perProduct(Catalog base, List<CatalogRepricer.Rule> rules) {
+        List<Product> out = new ArrayList<>(base.size());
+        for (Product p : base.getProducts()) {
+            double price = p.getPrice();
+            boolean drink = p instanceof DrinkItem;
+            int id = p.getId();
+            if (drink) price = Math.floor(Math.rint(price * 100) * 1.05 / 25 + 0.5 + 1e-6) * 25 / 100;
+            if (!drink && id >= 100_000 && id <= 199_999) price = Math.floor(Math.rint(price * 100) * 0.9 + 0.5 + 1e-6) / 100;
+            if (id >= 500_000 && id <= 500_999) price = 9.99;
+            if (price == p.getPrice()) {
+                out.add(p);
+            } else {
+                out.add(drink ? new DrinkItem(id, p.getName(), price) : new FoodItem(id, p.getName(), price));
+            }
+        }
+        return new Catalog(base.getVersion() + 1, out);
+    }
+}
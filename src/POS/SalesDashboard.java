@@ -0,0 +1,124 @@
+package POS;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.function.IntFunction;
+
+/**
+ * Shift manager's live view of a {@link SalesWindow}: sales in the last minute, sales per
+ * minute over the last 15 minutes, average basket size and the top products.
+ * A one-second timer reads the window into a reused view; labels are only set when their
+ * text changes and the chart repaints only itself, so it can run next to the cashier UI.
+ */
+public class SalesDashboard extends JFrame {
+    private static final int TOP = 10;
+
+    private final SalesWindow window;
+    private final IntFunction<String> names;
+    private final SalesWindow.View view = new SalesWindow.View(TOP);
+    private final JLabel lastMinute = new JLabel(" ");
+    private final JLabel basket = new JLabel(" ");
+    private final JLabel fifteen = new JLabel(" ");
+    private final MinuteChart chart = new MinuteChart();
+    private final JLabel[] top = new JLabel[TOP];
+    private final Timer timer;
+
+    private SalesDashboard(String title, SalesWindow window, IntFunction<String> names) {
+        super(title);
+        this.window = window;
+        this.names = names;
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JPanel stats = new JPanel(new GridLayout(1, 3, 8, 0));
+        stats.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        stats.add(tile("Last minute", lastMinute, new Color(240, 255, 245)));
+        stats.add(tile("Avg basket (15 min)", basket, new Color(245, 250, 255)));
+        stats.add(tile("Last 15 minutes", fifteen, new Color(255, 250, 240)));
+        add(stats, BorderLayout.NORTH);
+
+        chart.setPreferredSize(new Dimension(360, 160));
+        chart.setBorder(BorderFactory.createTitledBorder("Sales per minute"));
+        add(chart, BorderLayout.CENTER);
+
+        JPanel list = new JPanel(new GridLayout(TOP, 1));
+        list.setBorder(BorderFactory.createTitledBorder("Top products (15 min)"));
+        for (int i = 0; i < TOP; i++) {
+            top[i] = new JLabel(" ");
+            list.add(top[i]);
+        }
+        list.setPreferredSize(new Dimension(220, 0));
+        add(list, BorderLayout.EAST);
+
+        timer = new Timer(1000, e -> refresh());
+        setSize(640, 360);
+    }
+
+    private static JPanel tile(String caption, JLabel value, Color bg) {
+        JPanel p = new JPanel(new BorderLayout());
+        p.setBackground(bg);
+        p.setBorder(BorderFactory.createEmptyBorder(6, 10, 6, 10));
+        JLabel c = new JLabel(caption);
+        c.setFont(c.getFont().deriveFont(Font.PLAIN, 12f));
+        value.setFont(value.getFont().deriveFont(Font.BOLD, 16f));
+        p.add(c, BorderLayout.NORTH);
+        p.add(value, BorderLayout.CENTER);
+        return p;
+    }
+
+    /**
+     * Opens a dashboard over the window. names resolves product ids for the top list.
+     */
+    public static SalesDashboard open(String title, SalesWindow window, IntFunction<String> names) {
+        SalesDashboard d = new SalesDashboard(title, window, names);
+        d.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                d.timer.stop();
+            }
+        });
+        d.setLocationByPlatform(true);
+        d.setVisible(true);
+        d.refresh();
+        d.timer.start();
+        return d;
+    }
+
+    // EDT, once a second
+    private void refresh() {
+        window.read(System.currentTimeMillis(), view);
+        setText(lastMinute, String.format("₱%.2f  (%d orders)", view.lastMinuteCents / 100.0, view.lastMinuteOrders));
+        setText(basket, String.format("%.1f items", view.averageBasket()));
+        setText(fifteen, String.format("₱%.2f  (%d orders)", view.cents / 100.0, view.orders));
+        for (int i = 0; i < TOP; i++) {
+            setText(top[i], i < view.topCount
+                    ? (i + 1) + ". " + names.apply(view.topIds[i]) + "  x" + view.topUnits[i] : " ");
+        }
+        chart.repaint();
+    }
+
+    private static void setText(JLabel l, String text) {
+        if (!text.equals(l.getText())) l.setText(text);
+    }
+
+    // Bars of the per-minute sales, oldest on the left
+    private class MinuteChart extends JPanel {
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Insets in = getInsets();
+            int w = getWidth() - in.left - in.right;
+            int h = getHeight() - in.top - in.bottom - 4;
+            long[] cents = view.perMinuteCents;
+            long max = 1;
+            for (long c : cents) max = Math.max(max, c);
+            int n = cents.length;
+            int bw = Math.max(1, w / n);
+            for (int i = 0; i < n; i++) {
+                int bh = (int) (h * cents[i] / max);
+                g.setColor(i == n - 1 ? new Color(120, 190, 240) : new Color(80, 160, 220));
+                g.fillRect(in.left + i * bw + 1, in.top + 2 + h - bh, bw - 2, bh);
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sold lines from every confirmed checkout, kept for analytics.
+ * Lines of the current day accumulate in memory in columnar form; when the day changes
+ * (or the day grows past a size limit, or on close) they are sealed into an immutable
+ * {@link SalesSegment} file by a background thread. Queries run over the sealed segments
+ * plus a copy of the open day, see {@link #query(long, long)}.
+ */
+public class SalesHistory implements CheckoutListener, AutoCloseable {
+    private static final int DEFAULT_SEGMENT_ROWS = 1 << 16;
+
+    private final Path dir;
+    private final ZoneId zone;
+    private final int segmentRows;
+    private final List<SalesSegment> sealed = new CopyOnWriteArrayList<>();
+    private final ExecutorService sealer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Sales-Sealer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Open day, guarded by this
+    private LocalDate day;
+    private long lastTime;
+    private int rows;
+    private long[] time = new long[256];
+    private long[] order = new long[256];
+    private short[] product = new short[256];
+    private int[] qty = new int[256];
+    private int[] cents = new int[256];
+    private final Map<Integer, Integer> codes = new HashMap<>();
+    private int[] dict = new int[64];
+    private int segmentSeq;
+
+    public SalesHistory(Path dir) throws IOException {
+        this(dir, ZoneId.systemDefault(), DEFAULT_SEGMENT_ROWS);
+    }
+
+    SalesHistory(Path dir, ZoneId zone, int segmentRows) throws IOException {
+        this.dir = dir;
+        this.zone = zone;
+        this.segmentRows = Math.min(segmentRows, Integer.MAX_VALUE / 16);
+        Files.createDirectories(dir);
+        List<SalesSegment> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "sales-*.seg")) {
+            for (Path f : files) {
+                try {
+                    found.add(SalesSegment.open(f));
+                } catch (IOException e) {
+                    System.err.println("Skipping sales segment " + f + ": " + e.getMessage());
+                }
+                segmentSeq = Math.max(segmentSeq, sequenceOf(f) + 1);
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.getMinTime(), b.getMinTime()));
+        sealed.addAll(found);
+    }
+
+    private static int sequenceOf(Path f) {
+        String n = f.getFileName().toString();
+        try {
+            return Integer.parseInt(n.substring("sales-".length(), n.length() - ".seg".length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void checkoutConfirmed(long orderNo, CartSnapshot order) {
+        record(System.currentTimeMillis(), orderNo, order);
+    }
+
+    // Appends the lines of one order; runs on the confirming thread, so it only fills arrays
+    synchronized void record(long timeMillis, long orderNo, CartSnapshot lines) {
+        // Keep time non-decreasing within a day even if the wall clock steps back
+        long t = Math.max(timeMillis, lastTime);
+        LocalDate d = Instant.ofEpochMilli(t).atZone(zone).toLocalDate();
+        if (day != null && !d.equals(day)) sealOpenDay();
+        if (rows + lines.size() > segmentRows || codes.size() + lines.size() > SalesSegment.MAX_DICT) sealOpenDay();
+        day = d;
+        lastTime = t;
+        ensureCapacity(rows + lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            Product p = lines.getProduct(i);
+            int q = lines.getQuantity(i);
+            time[rows] = t;
+            order[rows] = orderNo;
+            product[rows] = (short) codeOf(p.getId());
+            qty[rows] = q;
+            cents[rows] = Math.toIntExact(CartSnapshot.cents(p.getPrice()) * q);
+            rows++;
+        }
+    }
+
+    private int codeOf(int productId) {
+        Integer c = codes.get(productId);
+        if (c != null) return c;
+        int code = codes.size();
+        if (code == dict.length) dict = Arrays.copyOf(dict, code * 2);
+        dict[code] = productId;
+        codes.put(productId, code);
+        return code;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= time.length) return;
+        int cap = Math.max(n, time.length * 2);
+        time = Arrays.copyOf(time, cap);
+        order = Arrays.copyOf(order, cap);
+        product = Arrays.copyOf(product, cap);
+        qty = Arrays.copyOf(qty, cap);
+        cents = Arrays.copyOf(cents, cap);
+    }
+
+    // Hands the open day to the sealer thread and starts a new one
+    private void sealOpenDay() {
+        if (rows == 0) return;
+        int n = rows;
+        int[] d = Arrays.copyOf(dict, codes.size());
+        long[] t = time, o = order;
+        short[] p = product;
+        int[] q = qty, c = cents;
+        Path file = dir.resolve(String.format("sales-%08d.seg", segmentSeq++));
+        // The arrays now belong to the sealer; the open day starts on fresh ones
+        time = new long[t.length];
+        order = new long[t.length];
+        product = new short[t.length];
+        qty = new int[t.length];
+        cents = new int[t.length];
+        codes.clear();
+        rows = 0;
+        sealed.add(SalesSegment.of(n, d, t, o, p, q, c));
+        int index = sealed.size() - 1;
+        sealer.execute(() -> {
+            try {
+                SalesSegment onDisk = SalesSegment.write(file, n, d, t, o, p, q, c);
+                // Same rows, now backed by the file; the decoded arrays are dropped
+                sealed.set(index, onDisk);
+            } catch (IOException e) {
+                System.err.println("Sealing " + file + " failed, rows kept in memory: " + e.getMessage());
+            }
+        });
+    }
+
+    // Seals the open day now
+    public synchronized void seal() {
+        sealOpenDay();
+    }
+
+    // Waits for pending segment writes; for tests and benchmarks
+    void awaitSealed() throws InterruptedException {
+        Object done = new Object();
+        synchronized (done) {
+            sealer.execute(() -> {
+                synchronized (done) {
+                    done.notifyAll();
+                }
+            });
+            done.wait();
+        }
+    }
+
+    /**
+     * Query over the lines sold in [fromMillis, toMillis). Segments outside the range are
+     * skipped without reading them; the open day is copied, so the query sees a fixed state.
+     */
+    public SalesQuery query(long fromMillis, long toMillis) {
+        List<SalesSegment> in = new ArrayList<>();
+        for (SalesSegment s : sealed) {
+            if (s.getRows() > 0 && s.getMaxTime() >= fromMillis && s.getMinTime() < toMillis) in.add(s);
+        }
+        synchronized (this) {
+            if (rows > 0 && lastTime >= fromMillis && time[0] < toMillis) {
+                in.add(SalesSegment.of(rows, Arrays.copyOf(dict, codes.size()), Arrays.copyOf(time, rows),
+                        Arrays.copyOf(order, rows), Arrays.copyOf(product, rows), Arrays.copyOf(qty, rows),
+                        Arrays.copyOf(cents, rows)));
+            }
+        }
+        return new SalesQuery(in, fromMillis, toMillis, zone);
+    }
+
+    public List<SalesSegment> getSegments() {
+        return new ArrayList<>(sealed);
+    }
+
+    @Override
+    public void close() throws IOException {
+        seal();
+        sealer.shutdown();
+        try {
+            sealer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
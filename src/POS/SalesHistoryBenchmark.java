@@ -0,0 +1,96 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Builds months of synthetic sales history into a temporary directory, reopens it from
+ * disk and times the analytics queries, cold (columns read from the files) and warm.
+ *
+ * Usage: java -cp out/production/POS POS.SalesHistoryBenchmark [days] [ordersPerDay] [products]
+ */
+public class SalesHistoryBenchmark {
+    private static final long HOUR = 3_600_000L;
+
+    public static void main(String[] args) throws Exception {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 180;
+        int ordersPerDay = args.length > 1 ? Integer.parseInt(args[1]) : 1_500;
+        int productCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        ZoneId zone = ZoneId.systemDefault();
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= productCount; i++) {
+            products.add(i % 3 == 0 ? new DrinkItem(i, "Drink" + i, 1.0 + i % 7) : new FoodItem(i, "Food" + i, 2.0 + i % 11));
+        }
+
+        Path dir = Files.createTempDirectory("pos-history");
+        long start = LocalDate.now(zone).minusDays(days).atStartOfDay(zone).toInstant().toEpochMilli();
+        Random rnd = new Random(42);
+        long t0 = System.nanoTime();
+        long lines = 0;
+        try (SalesHistory h = new SalesHistory(dir, zone, 1 << 16)) {
+            long orderNo = 0;
+            for (int d = 0; d < days; d++) {
+                long open = start + d * 24 * HOUR + 8 * HOUR;
+                for (int o = 0; o < ordersPerDay; o++) {
+                    // Skewed picks so there are clear best sellers; Burger (1) pulls Fries (2) along
+                    Cart cart = new Cart();
+                    int n = 1 + rnd.nextInt(5);
+                    for (int k = 0; k < n; k++) {
+                        int idx = (int) Math.min(productCount - 1, Math.abs(rnd.nextGaussian()) * productCount / 6);
+                        cart.addProduct(products.get(idx));
+                        if (idx == 0 && rnd.nextInt(10) < 7) cart.addProduct(products.get(1));
+                    }
+                    long time = open + (long) o * 14 * HOUR / ordersPerDay;
+                    h.record(time, ++orderNo, cart.snapshot());
+                    lines += cart.size();
+                }
+            }
+        }
+        long build = System.nanoTime() - t0;
+        long bytes;
+        try (Stream<Path> files = Files.list(dir)) {
+            bytes = files.mapToLong(f -> f.toFile().length()).sum();
+        }
+        System.out.printf("history: %d days, %d lines, %.1f MB on disk (%.1f B/line), built in %.0f ms%n",
+                days, lines, bytes / 1048576.0, bytes / (double) lines, build / 1e6);
+
+        // Reopened from disk: the first pass reads the columns from the segment files
+        SalesHistory h = new SalesHistory(dir, zone, 1 << 16);
+        for (String pass : new String[]{"cold", "warm"}) {
+            long end = start + days * 24 * HOUR;
+            long q0 = System.nanoTime();
+            SalesQuery q = h.query(start, end);
+            List<SalesQuery.ProductSales> top = q.bestSellers(5);
+            long q1 = System.nanoTime();
+            List<List<SalesQuery.ProductSales>> byHour = q.bestSellersByHour(3);
+            long q2 = System.nanoTime();
+            double attach = q.attachRate(1, 2);
+            long q3 = System.nanoTime();
+            int months = q.centsByMonth().size();
+            long q4 = System.nanoTime();
+            System.out.printf("%s: bestSellers %.1f ms, byHour %.1f ms, attachRate %.1f ms, byMonth %.1f ms%n",
+                    pass, (q1 - q0) / 1e6, (q2 - q1) / 1e6, (q3 - q2) / 1e6, (q4 - q3) / 1e6);
+            if (pass.equals("warm")) {
+                System.out.println("top 5: " + top);
+                System.out.println("13:00 top 3: " + byHour.get(13));
+                System.out.printf("Fries with Burger: %.1f%%, %d months%n", attach * 100, months);
+            }
+        }
+        deleteAll(dir);
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) Files.delete(f);
+        }
+        Files.delete(dir);
+    }
+}
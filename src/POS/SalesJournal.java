@@ -0,0 +1,693 @@
+package POS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only local journal of confirmed sales, the terminal's source of truth while the
+ * link to the store aggregator is down. A record's offset (its byte position) identifies it
+ * everywhere: {@link JournalShipper} ships byte ranges and the aggregator keeps a byte-exact
+ * replica, so "last acknowledged offset" and deduplication are plain comparisons.
+ *
+ * Record: length (int, payload bytes), CRC32 of the payload (int), payload:
+ * order number (long), time millis (long), line count (int), then per line
+ * product id, quantity, amount in centavos (3 ints), then the loyalty card key (long, see
+ * {@link LoyaltyMembers#cardKey}) when the sale was for a member. Little-endian.
+ * A torn record at the tail (crash during append) is cut off when the journal is opened.
+ *
+ * A journal is one file ({@link #open}) or a directory of segments ({@link #openSegmented}).
+ * Segments cover consecutive offset ranges; the active one is named &lt;base&gt;.seg and on
+ * rollover is renamed to &lt;base&gt;_&lt;end&gt;_&lt;first time&gt;_&lt;last time&gt;.seg,
+ * so the directory listing is the index by offset and time. A background thread gzips
+ * sealed segments and applies retention; appends only wait for it during the brief swap
+ * of a segment's file, never during compression.
+ */
+public class SalesJournal implements CheckoutListener, AutoCloseable {
+    static final int RECORD_HEADER = 8;
+    private static final int PAYLOAD_FIXED = 8 + 8 + 4;
+    private static final int LINE_BYTES = 12;
+    private static final int MEMBER_BYTES = 8;
+    private static final String ACTIVE = ".seg";
+    private static final String SEALED = ".seg";
+    private static final String PACKED = ".seg.gz";
+
+    // One decoded record
+    public static final class Record {
+        private final long offset;
+        private final long orderNo;
+        private final long timeMillis;
+        private final int[] productIds;
+        private final int[] quantities;
+        private final int[] cents;
+        private final long memberCard;
+
+        Record(long offset, long orderNo, long timeMillis, int[] productIds, int[] quantities, int[] cents,
+               long memberCard) {
+            this.offset = offset;
+            this.orderNo = orderNo;
+            this.timeMillis = timeMillis;
+            this.productIds = productIds;
+            this.quantities = quantities;
+            this.cents = cents;
+            this.memberCard = memberCard;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getOrderNo() {
+            return orderNo;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public int getLineCount() {
+            return productIds.length;
+        }
+
+        public int getProductId(int line) {
+            return productIds[line];
+        }
+
+        public int getQuantity(int line) {
+            return quantities[line];
+        }
+
+        public int getCents(int line) {
+            return cents[line];
+        }
+
+        // Loyalty card key the sale was for, or -1
+        public long getMemberCard() {
+            return memberCard;
+        }
+    }
+
+    /**
+     * Segment rollover, compression and retention of a segmented journal.
+     * Retention deletes the oldest sealed segments while the journal is over maxBytes or a
+     * segment's last record is older than maxAgeMillis (0 = no limit), but never a segment
+     * past the retention floor (see {@link #setRetentionFloor}).
+     */
+    public static final class Policy {
+        final long segmentBytes;
+        final boolean compress;
+        final long maxBytes;
+        final long maxAgeMillis;
+
+        public Policy(long segmentBytes, boolean compress, long maxBytes, long maxAgeMillis) {
+            if (segmentBytes <= 0) throw new IllegalArgumentException("Segment size must be positive: " + segmentBytes);
+            this.segmentBytes = segmentBytes;
+            this.compress = compress;
+            this.maxBytes = maxBytes;
+            this.maxAgeMillis = maxAgeMillis;
+        }
+    }
+
+    // A file holding the records of [base, end); guarded by itself for its file fields
+    private static final class Segment {
+        final long base;
+        long end;                      // Sealed segments only; the active one ends at committed
+        long minTime = Long.MAX_VALUE; // Time range of its records
+        long maxTime = Long.MIN_VALUE;
+        Path path;
+        FileChannel channel;           // Null once compressed
+        long diskBytes;
+
+        Segment(long base, Path path) {
+            this.base = base;
+            this.path = path;
+        }
+
+        void time(long t) {
+            minTime = Math.min(minTime, t);
+            maxTime = Math.max(maxTime, t);
+        }
+    }
+
+    private final Path dir; // Null for a single-file journal
+    private final Policy policy;
+    private final boolean sync;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buf = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<Segment> segments = new ArrayList<>(); // By base; guarded by this
+    private Segment active;
+    // End of the last complete record; readers never look past it
+    private volatile long committed;
+    // Offset of the oldest retained record
+    private volatile long start;
+
+    // Background compression and retention, segmented journals only
+    private final LinkedBlockingQueue<Segment> sealed = new LinkedBlockingQueue<>();
+    private Thread maintainer;
+    private volatile boolean running = true;
+    private volatile LongSupplier retentionFloor = () -> Long.MAX_VALUE;
+
+    // Last inflated segment, for reads of compressed segments; guarded by itself
+    private final Object[] inflated = new Object[2]; // {Segment, byte[]}
+
+    private SalesJournal(Path dir, Policy policy, boolean sync) {
+        this.dir = dir;
+        this.policy = policy;
+        this.sync = sync;
+    }
+
+    /**
+     * Opens (or creates) a journal. With sync every append is forced to disk before it returns.
+     */
+    public static SalesJournal open(Path file, boolean sync) throws IOException {
+        SalesJournal j = new SalesJournal(null, null, sync);
+        j.active = j.openActive(new Segment(0, file));
+        j.segments.add(j.active);
+        return j;
+    }
+
+    /**
+     * Opens (or creates) a segmented journal in dir, recovering from a crash at any point of
+     * a rollover or compression, and starts its background compression and retention.
+     */
+    public static SalesJournal openSegmented(Path dir, boolean sync, Policy policy) throws IOException {
+        Files.createDirectories(dir);
+        SalesJournal j = new SalesJournal(dir, policy, sync);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) files.add(p);
+        }
+        // Leftovers of an interrupted compression, and originals whose gzip was completed
+        for (Path p : files) {
+            String name = p.getFileName().toString();
+            if (name.endsWith(".tmp")) Files.delete(p);
+            else if (name.endsWith(SEALED) && !name.endsWith(PACKED) && files.contains(p.resolveSibling(name + ".gz"))) {
+                Files.delete(p);
+            }
+        }
+        List<Segment> found = new ArrayList<>();
+        for (Path p : files) {
+            if (!Files.exists(p)) continue;
+            Segment s = parse(p);
+            if (s != null) found.add(s);
+        }
+        found.sort((a, b) -> Long.compare(a.base, b.base));
+        for (int i = 0; i < found.size(); i++) {
+            Segment s = found.get(i);
+            if (s.end < 0) {
+                // Active (or an active one that never got renamed): only the last may take appends
+                j.openActive(s);
+                if (i < found.size() - 1) j.seal(s);
+            }
+            j.segments.add(s);
+        }
+        if (j.segments.isEmpty() || j.segments.get(j.segments.size() - 1).channel == null
+                || j.segments.get(j.segments.size() - 1).end >= 0) {
+            long base = j.segments.isEmpty() ? 0 : j.segments.get(j.segments.size() - 1).end;
+            Segment s = j.openActive(new Segment(base, dir.resolve(String.format("%020d", base) + ACTIVE)));
+            j.segments.add(s);
+        }
+        j.active = j.segments.get(j.segments.size() - 1);
+        j.start = j.segments.get(0).base;
+        for (Segment s : j.segments) {
+            if (s != j.active && s.channel != null && policy.compress) j.sealed.add(s);
+        }
+        j.maintainer = new Thread(j::maintain, "Journal-Maintenance");
+        j.maintainer.setDaemon(true);
+        j.maintainer.setPriority(Thread.MIN_PRIORITY);
+        j.maintainer.start();
+        return j;
+    }
+
+    // Segment of a file name: end is -1 for the active one; null for other files
+    private static Segment parse(Path p) throws IOException {
+        String name = p.getFileName().toString();
+        boolean packed = name.endsWith(PACKED);
+        if (!packed && !name.endsWith(SEALED)) return null;
+        String[] f = name.substring(0, name.length() - (packed ? PACKED : SEALED).length()).split("_");
+        try {
+            Segment s = new Segment(Long.parseLong(f[0]), p);
+            s.diskBytes = Files.size(p);
+            if (f.length == 4) {
+                s.end = Long.parseLong(f[1]);
+                s.minTime = Long.parseLong(f[2]);
+                s.maxTime = Long.parseLong(f[3]);
+                if (!packed) s.channel = FileChannel.open(p, StandardOpenOption.READ);
+            } else if (f.length == 1 && !packed) {
+                s.end = -1;
+            } else {
+                return null;
+            }
+            return s;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Opens a segment for appending, cutting off a torn tail; sets committed to its end
+    private Segment openActive(Segment s) throws IOException {
+        FileChannel ch = FileChannel.open(s.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long end = validEnd(ch, s);
+        if (end < ch.size()) {
+            System.err.println("Journal " + s.path + ": dropping " + (ch.size() - end) + " bytes of torn tail");
+            ch.truncate(end);
+        }
+        s.channel = ch;
+        s.end = -1;
+        committed = s.base + end;
+        return s;
+    }
+
+    // Scans the records and returns the end of the last intact one; collects their time range
+    private static long validEnd(FileChannel ch, Segment s) throws IOException {
+        long size = ch.size();
+        long pos = 0;
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        while (pos + RECORD_HEADER <= size) {
+            head.clear();
+            if (ch.read(head, pos) < RECORD_HEADER) break;
+            int len = head.getInt(0);
+            if (len < PAYLOAD_FIXED || pos + RECORD_HEADER + len > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(payload, pos + RECORD_HEADER);
+            crc.reset();
+            crc.update(payload.array(), 0, len);
+            if ((int) crc.getValue() != head.getInt(4)) break;
+            s.time(payload.getLong(8));
+            pos += RECORD_HEADER + len;
+        }
+        return pos;
+    }
+
+    @Override
+    public void checkoutConfirmed(long orderNo, CartSnapshot order) {
+        try {
+            append(orderNo, System.currentTimeMillis(), order);
+        } catch (IOException e) {
+            // The sale stands; losing its journal record must not block the lane
+            System.err.println("Journal append failed for order " + orderNo + ": " + e.getMessage());
+        }
+    }
+
+    // Appends one order and returns its offset
+    public synchronized long append(long orderNo, long timeMillis, CartSnapshot order) throws IOException {
+        int n = order.size();
+        LoyaltyMembers.Member member = order.getMember();
+        int len = PAYLOAD_FIXED + n * LINE_BYTES + (member != null ? MEMBER_BYTES : 0);
+        if (buf.capacity() < RECORD_HEADER + len) {
+            buf = ByteBuffer.allocate(Integer.highestOneBit(RECORD_HEADER + len) * 2).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buf.clear();
+        buf.putInt(len).putInt(0).putLong(orderNo).putLong(timeMillis).putInt(n);
+        for (int i = 0; i < n; i++) {
+            Product p = order.getProduct(i);
+            int q = order.getQuantity(i);
+            buf.putInt(p.getId()).putInt(q).putInt(Math.toIntExact(CartSnapshot.cents(p.getPrice()) * q));
+        }
+        if (member != null) buf.putLong(member.getCard());
+        crc.reset();
+        crc.update(buf.array(), RECORD_HEADER, len);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+        long offset = committed;
+        long pos = offset;
+        while (buf.hasRemaining()) pos += active.channel.write(buf, pos - active.base);
+        if (sync) active.channel.force(false);
+        active.time(timeMillis);
+        committed = pos;
+        notifyAll();
+        if (dir != null && pos - active.base >= policy.segmentBytes) roll();
+        return offset;
+    }
+
+    /**
+     * Appends already encoded records (a replica receiving a shipped batch). They must start
+     * exactly at the current end; the caller has verified them with {@link #decode}.
+     */
+    synchronized void appendRaw(long offset, ByteBuffer records) throws IOException {
+        if (offset != committed) throw new IOException("Append at " + offset + ", journal ends at " + committed);
+        ByteBuffer b = records.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int at = b.position(); at + RECORD_HEADER + 16 <= b.limit(); at += RECORD_HEADER + b.getInt(at)) {
+            active.time(b.getLong(at + RECORD_HEADER + 8));
+        }
+        long pos = offset;
+        while (records.hasRemaining()) pos += active.channel.write(records, pos - active.base);
+        if (sync) active.channel.force(false);
+        committed = pos;
+        notifyAll();
+        if (dir != null && pos - active.base >= policy.segmentBytes) roll();
+    }
+
+    // Seals the active segment and starts a new one at the current end
+    private void roll() throws IOException {
+        Segment old = active;
+        seal(old);
+        Segment s = new Segment(committed, dir.resolve(String.format("%020d", committed) + ACTIVE));
+        s.channel = FileChannel.open(s.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        s.end = -1;
+        segments.add(s);
+        active = s;
+        if (policy.compress) sealed.add(old);
+    }
+
+    // Renames a finished segment to carry its offset and time range
+    private void seal(Segment s) throws IOException {
+        synchronized (s) {
+            s.end = s.base + s.channel.size();
+            s.diskBytes = s.end - s.base;
+            Path named = dir.resolve(String.format("%020d_%020d_%d_%d", s.base, s.end, s.minTime, s.maxTime) + SEALED);
+            Files.move(s.path, named, StandardCopyOption.ATOMIC_MOVE);
+            s.path = named;
+        }
+    }
+
+    // Background thread: compresses sealed segments, then applies retention
+    private void maintain() {
+        while (running) {
+            try {
+                Segment s = sealed.poll(10, TimeUnit.SECONDS);
+                if (s != null) compress(s);
+                applyRetention();
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("Journal maintenance failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Gzips a sealed segment next to it, then swaps the segment over to the compressed file
+    private void compress(Segment s) throws IOException {
+        Path src;
+        FileChannel ch;
+        synchronized (s) {
+            if (s.channel == null) return; // Deleted by retention
+            src = s.path;
+            ch = s.channel;
+        }
+        Path gz = src.resolveSibling(src.getFileName() + ".gz");
+        Path tmp = src.resolveSibling(src.getFileName() + ".gz.tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            long pos = 0;
+            long size = s.end - s.base;
+            while (pos < size) {
+                chunk.clear();
+                int r = ch.read(chunk, pos);
+                if (r < 0) throw new IOException("Segment " + src + " is shorter than " + size);
+                out.write(chunk.array(), 0, r);
+                pos += r;
+            }
+        }
+        try (FileChannel c = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            c.force(true);
+        }
+        synchronized (s) {
+            if (s.channel == null) {
+                Files.delete(tmp);
+                return;
+            }
+            Files.move(tmp, gz, StandardCopyOption.ATOMIC_MOVE);
+            s.channel.close();
+            s.channel = null;
+            s.path = gz;
+            s.diskBytes = Files.size(gz);
+            Files.delete(src);
+        }
+    }
+
+    // Deletes the oldest sealed segments beyond the size or age limit, up to the retention floor
+    private void applyRetention() throws IOException {
+        if (policy.maxBytes <= 0 && policy.maxAgeMillis <= 0) return;
+        long floor = retentionFloor.getAsLong();
+        long now = System.currentTimeMillis();
+        List<Segment> drop = new ArrayList<>();
+        synchronized (this) {
+            long total = committed - active.base;
+            for (Segment s : segments) if (s != active) total += s.diskBytes;
+            while (segments.size() > 1) {
+                Segment s = segments.get(0);
+                boolean tooBig = policy.maxBytes > 0 && total > policy.maxBytes;
+                boolean tooOld = policy.maxAgeMillis > 0 && s.maxTime < now - policy.maxAgeMillis;
+                if (!(tooBig || tooOld) || s.end > floor) break;
+                segments.remove(0);
+                total -= s.diskBytes;
+                drop.add(s);
+            }
+            start = segments.get(0).base;
+        }
+        for (Segment s : drop) {
+            synchronized (s) {
+                if (s.channel != null) s.channel.close();
+                s.channel = null;
+                Files.deleteIfExists(s.path);
+            }
+        }
+    }
+
+    /**
+     * Segments ending past this offset are kept whatever the retention policy says; the
+     * terminal passes its shipper's acknowledged offset, so unreplicated sales are never deleted.
+     */
+    public void setRetentionFloor(LongSupplier floor) {
+        this.retentionFloor = floor;
+    }
+
+    // End offset of the journal (exclusive); everything before it is complete records
+    public long getEnd() {
+        return committed;
+    }
+
+    // Offset of the oldest record still kept (0 unless retention deleted segments)
+    public long getStart() {
+        return start;
+    }
+
+    // Segment files, including the active one
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    // Bytes on disk over all segments
+    public synchronized long getDiskBytes() {
+        long total = committed - active.base;
+        for (Segment s : segments) if (s != active) total += s.diskBytes;
+        return total;
+    }
+
+    /**
+     * Waits until the journal grows past offset or the timeout passes; returns the end.
+     */
+    public synchronized long awaitEnd(long offset, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (committed <= offset) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) break;
+            wait(left);
+        }
+        return committed;
+    }
+
+    // Segment holding offset (the last one starting at or before it)
+    private synchronized Segment segmentFor(long offset) throws IOException {
+        if (offset < start) throw new IOException("Offset " + offset + " was deleted by retention (journal starts at " + start + ")");
+        int lo = 0, hi = segments.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segments.get(mid).base <= offset) lo = mid;
+            else hi = mid - 1;
+        }
+        return segments.get(lo);
+    }
+
+    /**
+     * Reads whole records starting at offset into dst (cleared first), stopping before the
+     * record that would not fit or at the end of the offset's segment. A single record larger
+     * than dst is read alone into a new buffer, which is returned. Returns dst (or the larger
+     * buffer), flipped.
+     */
+    public ByteBuffer read(long offset, ByteBuffer dst) throws IOException {
+        long end = committed;
+        dst.clear();
+        dst.order(ByteOrder.LITTLE_ENDIAN);
+        Segment s = segmentFor(offset);
+        synchronized (s) {
+            if (s.end >= 0) end = Math.min(end, s.end);
+            if (s.channel == null && s.path != null && s.path.toString().endsWith(PACKED)) {
+                return readPacked(s, offset, end, dst);
+            }
+            if (s.channel == null) throw new IOException("Offset " + offset + " was deleted by retention");
+            FileChannel channel = s.channel;
+            long pos = offset;
+            ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (pos < end) {
+                head.clear();
+                channel.read(head, pos - s.base);
+                int size = RECORD_HEADER + head.getInt(0);
+                if (size > dst.remaining()) {
+                    if (dst.position() > 0) break;
+                    dst = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                ByteBuffer record = dst.slice();
+                record.limit(size);
+                for (long p = pos; record.hasRemaining(); ) {
+                    int r = channel.read(record, p - s.base);
+                    if (r < 0) throw new IOException("Journal truncated at " + p);
+                    p += r;
+                }
+                dst.position(dst.position() + size);
+                pos += size;
+            }
+        }
+        dst.flip();
+        return dst;
+    }
+
+    // read() from a compressed segment, through the one-segment inflate cache
+    private ByteBuffer readPacked(Segment s, long offset, long end, ByteBuffer dst) throws IOException {
+        byte[] data = inflate(s);
+        ByteBuffer src = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = (int) (offset - s.base);
+        int stop = (int) (end - s.base);
+        while (pos < stop) {
+            int size = RECORD_HEADER + src.getInt(pos);
+            if (size > dst.remaining()) {
+                if (dst.position() > 0) break;
+                dst = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            dst.put(data, pos, size);
+            pos += size;
+        }
+        dst.flip();
+        return dst;
+    }
+
+    // Whole content of a compressed segment
+    private byte[] inflate(Segment s) throws IOException {
+        synchronized (inflated) {
+            if (inflated[0] == s) return (byte[]) inflated[1];
+        }
+        byte[] data = new byte[Math.toIntExact(s.end - s.base)];
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(s.path), 64 * 1024)) {
+            int n = 0;
+            while (n < data.length) {
+                int r = in.read(data, n, data.length - n);
+                if (r < 0) throw new IOException("Segment " + s.path + " inflates to " + n + " bytes, expected " + data.length);
+                n += r;
+            }
+        }
+        synchronized (inflated) {
+            inflated[0] = s;
+            inflated[1] = data;
+        }
+        return data;
+    }
+
+    /**
+     * Reports the records with a time in [fromMillis, toMillis], oldest first, opening only
+     * the segments whose time range overlaps. Returns the number of segments read.
+     */
+    public int scan(long fromMillis, long toMillis, Consumer<Record> out) throws IOException {
+        List<Segment> overlapping = new ArrayList<>();
+        long end;
+        synchronized (this) {
+            end = committed;
+            for (Segment s : segments) {
+                if (s.maxTime >= fromMillis && s.minTime <= toMillis) overlapping.add(s);
+            }
+        }
+        for (Segment s : overlapping) {
+            ByteBuffer data;
+            synchronized (s) {
+                long stop = s.end >= 0 ? s.end : end;
+                if (s.channel == null && s.path.toString().endsWith(PACKED)) {
+                    data = ByteBuffer.wrap(inflate(s), 0, (int) (stop - s.base));
+                } else if (s.channel != null) {
+                    data = ByteBuffer.allocate((int) (stop - s.base));
+                    while (data.hasRemaining() && s.channel.read(data, data.position()) > 0) {
+                    }
+                    data.flip();
+                } else {
+                    continue; // Deleted meanwhile
+                }
+            }
+            decode(data, s.base, r -> {
+                if (r.getTimeMillis() >= fromMillis && r.getTimeMillis() <= toMillis) out.accept(r);
+            });
+        }
+        return overlapping.size();
+    }
+
+    /**
+     * Decodes the records in buf (whole records, as produced by {@link #read}), the first
+     * one at offset firstOffset. Throws IOException on a checksum mismatch.
+     */
+    public static void decode(ByteBuffer buf, long firstOffset, Consumer<Record> out) throws IOException {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        long offset = firstOffset;
+        while (buf.remaining() >= RECORD_HEADER) {
+            int start = buf.position();
+            int len = buf.getInt();
+            int sum = buf.getInt();
+            if (len < PAYLOAD_FIXED || len > buf.remaining()) throw new IOException("Bad record length at offset " + offset);
+            crc.reset();
+            ByteBuffer payload = buf.slice();
+            payload.limit(len);
+            crc.update(payload);
+            if ((int) crc.getValue() != sum) throw new IOException("Checksum mismatch at offset " + offset);
+            long orderNo = buf.getLong();
+            long time = buf.getLong();
+            int n = buf.getInt();
+            int[] ids = new int[n], qty = new int[n], cents = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = buf.getInt();
+                qty[i] = buf.getInt();
+                cents[i] = buf.getInt();
+            }
+            long card = len - PAYLOAD_FIXED - n * LINE_BYTES >= MEMBER_BYTES ? buf.getLong() : -1;
+            out.accept(new Record(offset, orderNo, time, ids, qty, cents, card));
+            offset += buf.position() - start;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (maintainer != null) {
+            maintainer.interrupt();
+            try {
+                maintainer.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            for (Segment s : segments) {
+                synchronized (s) {
+                    if (s.channel != null) s.channel.close();
+                }
+            }
+        }
+    }
+}
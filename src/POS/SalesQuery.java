@@ -0,0 +1,254 @@
+package POS;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Analytics over a time range of the sales history, from {@link SalesHistory#query(long, long)}.
+ * Each method reads only the columns it needs. The time range is applied by binary search on
+ * the time column, and only for segments that straddle a range boundary. The per-segment scans
+ * are plain loops over primitive arrays, indexed by the segment's small product code, and are
+ * merged by product id at the end.
+ */
+public class SalesQuery {
+    private static final long HOUR = 3_600_000L;
+
+    // Units and amount sold of one product
+    public static final class ProductSales {
+        private final int productId;
+        private final long units;
+        private final long cents;
+
+        ProductSales(int productId, long units, long cents) {
+            this.productId = productId;
+            this.units = units;
+            this.cents = cents;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public long getCents() {
+            return cents;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + productId + " x" + units + " " + String.format("%.2f", cents / 100.0);
+        }
+    }
+
+    private final List<SalesSegment> segments;
+    private final long from;
+    private final long to;
+    private final ZoneId zone;
+
+    SalesQuery(List<SalesSegment> segments, long from, long to, ZoneId zone) {
+        this.segments = segments;
+        this.from = from;
+        this.to = to;
+        this.zone = zone;
+    }
+
+    // First and last+1 row of a segment inside the range; reads the time column only when needed
+    private int firstRow(SalesSegment s) {
+        return s.getMinTime() >= from ? 0 : s.lowerRow(from);
+    }
+
+    private int endRow(SalesSegment s) {
+        return s.getMaxTime() < to ? s.getRows() : s.lowerRow(to);
+    }
+
+    // Number of lines sold
+    public long getLines() {
+        long n = 0;
+        for (SalesSegment s : segments) n += endRow(s) - firstRow(s);
+        return n;
+    }
+
+    // Total amount in centavos
+    public long getTotalCents() {
+        long sum = 0;
+        for (SalesSegment s : segments) sum += sumCents(s, firstRow(s), endRow(s));
+        return sum;
+    }
+
+    private static long sumCents(SalesSegment s, int lo, int hi) {
+        if (lo >= hi) return 0;
+        int[] cents = s.cents();
+        long sum = 0;
+        for (int i = lo; i < hi; i++) sum += cents[i];
+        return sum;
+    }
+
+    /**
+     * Products by units sold, most first, at most limit entries.
+     */
+    public List<ProductSales> bestSellers(int limit) {
+        Map<Integer, long[]> byProduct = new HashMap<>();
+        for (SalesSegment s : segments) {
+            int lo = firstRow(s), hi = endRow(s);
+            if (lo >= hi) continue;
+            long[] units = new long[s.dictSize()];
+            long[] cents = new long[s.dictSize()];
+            short[] code = s.product();
+            int[] qty = s.qty();
+            int[] amount = s.cents();
+            for (int i = lo; i < hi; i++) {
+                int c = code[i] & 0xFFFF;
+                units[c] += qty[i];
+                cents[c] += amount[i];
+            }
+            merge(byProduct, s, units, cents);
+        }
+        return rank(byProduct, limit);
+    }
+
+    /**
+     * Best sellers for each hour of the day (local time), index 0 to 23.
+     */
+    public List<List<ProductSales>> bestSellersByHour(int limit) {
+        List<Map<Integer, long[]>> byHour = new ArrayList<>(24);
+        for (int h = 0; h < 24; h++) byHour.add(new HashMap<>());
+        ZoneRules rules = zone.getRules();
+        for (SalesSegment s : segments) {
+            int lo = firstRow(s), hi = endRow(s);
+            if (lo >= hi) continue;
+            int dict = s.dictSize();
+            long[] units = new long[24 * dict];
+            long[] cents = new long[24 * dict];
+            long[] time = s.time();
+            short[] code = s.product();
+            int[] qty = s.qty();
+            int[] amount = s.cents();
+            long offset = rules.getOffset(Instant.ofEpochMilli(s.getMinTime())).getTotalSeconds() * 1000L;
+            boolean fixedOffset = offset == rules.getOffset(Instant.ofEpochMilli(s.getMaxTime())).getTotalSeconds() * 1000L;
+            for (int i = lo; i < hi; i++) {
+                // A segment is at most one day; only a DST switch day needs the per-row offset
+                long off = fixedOffset ? offset : rules.getOffset(Instant.ofEpochMilli(time[i])).getTotalSeconds() * 1000L;
+                int hour = (int) Math.floorMod(Math.floorDiv(time[i] + off, HOUR), 24L);
+                int k = hour * dict + (code[i] & 0xFFFF);
+                units[k] += qty[i];
+                cents[k] += amount[i];
+            }
+            for (int h = 0; h < 24; h++) {
+                long[] u = new long[dict];
+                long[] c = new long[dict];
+                System.arraycopy(units, h * dict, u, 0, dict);
+                System.arraycopy(cents, h * dict, c, 0, dict);
+                merge(byHour.get(h), s, u, c);
+            }
+        }
+        List<List<ProductSales>> out = new ArrayList<>(24);
+        for (Map<Integer, long[]> m : byHour) out.add(rank(m, limit));
+        return out;
+    }
+
+    /**
+     * Share of the orders containing anchorId that also contain attachedId
+     * (for example Fries with Burger). Zero when anchorId was not sold in the range.
+     */
+    public double attachRate(int anchorId, int attachedId) {
+        long anchorOrders = 0;
+        long both = 0;
+        for (SalesSegment s : segments) {
+            int anchor = codeIn(s, anchorId);
+            // Segments that never sold the anchor are skipped without reading a column
+            if (anchor < 0) continue;
+            int lo = firstRow(s), hi = endRow(s);
+            if (lo >= hi) continue;
+            int attached = codeIn(s, attachedId);
+            long[] order = s.order();
+            short[] code = s.product();
+            // An order's lines are contiguous and never split across segments
+            int i = lo;
+            while (i < hi) {
+                long o = order[i];
+                boolean hasAnchor = false, hasAttached = false;
+                for (; i < hi && order[i] == o; i++) {
+                    int c = code[i] & 0xFFFF;
+                    hasAnchor |= c == anchor;
+                    hasAttached |= c == attached;
+                }
+                if (hasAnchor) {
+                    anchorOrders++;
+                    if (hasAttached) both++;
+                }
+            }
+        }
+        return anchorOrders == 0 ? 0.0 : both / (double) anchorOrders;
+    }
+
+    /**
+     * Amount sold per calendar month (local time), in centavos.
+     */
+    public SortedMap<YearMonth, Long> centsByMonth() {
+        SortedMap<YearMonth, Long> out = new TreeMap<>();
+        for (SalesSegment s : segments) {
+            long sum = sumCents(s, firstRow(s), endRow(s));
+            if (sum != 0) out.merge(YearMonth.from(Instant.ofEpochMilli(s.getMinTime()).atZone(zone)), sum, Long::sum);
+        }
+        return out;
+    }
+
+    /**
+     * Units of one product sold per calendar month (local time).
+     */
+    public SortedMap<YearMonth, Long> unitsByMonth(int productId) {
+        SortedMap<YearMonth, Long> out = new TreeMap<>();
+        for (SalesSegment s : segments) {
+            int target = codeIn(s, productId);
+            if (target < 0) continue;
+            int lo = firstRow(s), hi = endRow(s);
+            short[] code = s.product();
+            int[] qty = s.qty();
+            long units = 0;
+            for (int i = lo; i < hi; i++) {
+                // Branch-free select
+                units += (code[i] & 0xFFFF) == target ? qty[i] : 0;
+            }
+            if (units != 0) out.merge(YearMonth.from(Instant.ofEpochMilli(s.getMinTime()).atZone(zone)), units, Long::sum);
+        }
+        return out;
+    }
+
+    // Segment code of a product, or -1
+    private static int codeIn(SalesSegment s, int productId) {
+        for (int c = 0; c < s.dictSize(); c++) {
+            if (s.productOf(c) == productId) return c;
+        }
+        return -1;
+    }
+
+    private static void merge(Map<Integer, long[]> into, SalesSegment s, long[] units, long[] cents) {
+        for (int c = 0; c < units.length; c++) {
+            if (units[c] == 0 && cents[c] == 0) continue;
+            long[] acc = into.computeIfAbsent(s.productOf(c), k -> new long[2]);
+            acc[0] += units[c];
+            acc[1] += cents[c];
+        }
+    }
+
+    private static List<ProductSales> rank(Map<Integer, long[]> byProduct, int limit) {
+        List<ProductSales> all = new ArrayList<>(byProduct.size());
+        for (Map.Entry<Integer, long[]> e : byProduct.entrySet()) {
+            all.add(new ProductSales(e.getKey(), e.getValue()[0], e.getValue()[1]));
+        }
+        all.sort((a, b) -> a.units != b.units ? Long.compare(b.units, a.units) : Integer.compare(a.productId, b.productId));
+        return Collections.unmodifiableList(all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all);
+    }
+}
@@ -0,0 +1,294 @@
+package POS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Immutable, column-oriented block of sold lines (at most one local day).
+ * Stored as one file per segment:
+ * - header: magic, version, row count, dictionary size, min/max time, column directory
+ * - dictionary: the product ids seen in the segment; lines refer to them by 16-bit code
+ * - columns: time (varint deltas, ms), order number (zigzag varint deltas), product code
+ *   (fixed 2 bytes), quantity (varint), line amount in centavos (varint)
+ * Opening reads the header only. A column is read and decoded into a primitive array the
+ * first time a query needs it, so a query touches only its own columns.
+ */
+public final class SalesSegment {
+    private static final int MAGIC = 0x504F5348; // "POSH"
+    private static final int VERSION = 1;
+
+    // Column ids, in file order
+    static final int TIME = 0;
+    static final int ORDER = 1;
+    static final int PRODUCT = 2;
+    static final int QTY = 3;
+    static final int CENTS = 4;
+    private static final int COLUMNS = 5;
+
+    private static final int HEADER = 4 * 4 + 2 * 8 + COLUMNS * 8;
+
+    // Codes are 16-bit, so a segment holds at most this many distinct products
+    static final int MAX_DICT = 0xFFFF;
+
+    private final Path file;
+    private final int rows;
+    private final long minTime;
+    private final long maxTime;
+    private final int[] dict;
+    private final int[] colOffset;
+    private final int[] colLength;
+
+    // Decoded columns, loaded on first use
+    private volatile long[] time;
+    private volatile long[] order;
+    private volatile short[] product;
+    private volatile int[] qty;
+    private volatile int[] cents;
+
+    private SalesSegment(Path file, int rows, long minTime, long maxTime, int[] dict, int[] colOffset, int[] colLength) {
+        this.file = file;
+        this.rows = rows;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.dict = dict;
+        this.colOffset = colOffset;
+        this.colLength = colLength;
+    }
+
+    // In-memory segment over already decoded columns (the open, unsealed day)
+    static SalesSegment of(int rows, int[] dict, long[] time, long[] order, short[] product, int[] qty, int[] cents) {
+        SalesSegment s = new SalesSegment(null, rows, rows == 0 ? 0 : time[0], rows == 0 ? 0 : time[rows - 1],
+                dict, null, null);
+        s.time = time;
+        s.order = order;
+        s.product = product;
+        s.qty = qty;
+        s.cents = cents;
+        return s;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getMinTime() {
+        return minTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Product id for a dictionary code
+    int productOf(int code) {
+        return dict[code];
+    }
+
+    int dictSize() {
+        return dict.length;
+    }
+
+    // Row range [from, to) with from <= time < to; times are non-decreasing within a segment
+    int lowerRow(long t) {
+        long[] ts = time();
+        int lo = 0, hi = rows;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ts[mid] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    long[] time() {
+        long[] c = time;
+        if (c == null) time = c = decodeDeltas(read(TIME), false);
+        return c;
+    }
+
+    long[] order() {
+        long[] c = order;
+        if (c == null) order = c = decodeDeltas(read(ORDER), true);
+        return c;
+    }
+
+    short[] product() {
+        short[] c = product;
+        if (c == null) {
+            ByteBuffer b = read(PRODUCT);
+            c = new short[rows];
+            b.asShortBuffer().get(c);
+            product = c;
+        }
+        return c;
+    }
+
+    int[] qty() {
+        int[] c = qty;
+        if (c == null) qty = c = decodeInts(read(QTY));
+        return c;
+    }
+
+    int[] cents() {
+        int[] c = cents;
+        if (c == null) cents = c = decodeInts(read(CENTS));
+        return c;
+    }
+
+    // ---- File format ----
+
+    /**
+     * Writes the columns as a new segment file. The file appears atomically under its final name.
+     */
+    static SalesSegment write(Path file, int rows, int[] dict, long[] time, long[] order, short[] product,
+                              int[] qty, int[] cents) throws IOException {
+        ByteBuffer[] cols = new ByteBuffer[COLUMNS];
+        cols[TIME] = encodeDeltas(time, rows, false);
+        cols[ORDER] = encodeDeltas(order, rows, true);
+        ByteBuffer p = ByteBuffer.allocate(rows * 2).order(ByteOrder.LITTLE_ENDIAN);
+        p.asShortBuffer().put(product, 0, rows);
+        cols[PRODUCT] = p;
+        cols[QTY] = encodeInts(qty, rows);
+        cols[CENTS] = encodeInts(cents, rows);
+
+        int[] off = new int[COLUMNS];
+        int[] len = new int[COLUMNS];
+        int pos = HEADER + dict.length * 4;
+        for (int c = 0; c < COLUMNS; c++) {
+            off[c] = pos;
+            len[c] = cols[c].limit();
+            pos += len[c];
+        }
+        long min = rows == 0 ? 0 : time[0];
+        long max = rows == 0 ? 0 : time[rows - 1];
+        ByteBuffer head = ByteBuffer.allocate(HEADER + dict.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(dict.length).putLong(min).putLong(max);
+        for (int c = 0; c < COLUMNS; c++) head.putInt(off[c]).putInt(len[c]);
+        for (int id : dict) head.putInt(id);
+        head.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (head.hasRemaining()) ch.write(head);
+            for (ByteBuffer b : cols) {
+                b.rewind();
+                while (b.hasRemaining()) ch.write(b);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new SalesSegment(file, rows, min, max, dict.clone(), off, len);
+    }
+
+    // Opens a segment file, reading only its header and dictionary
+    static SalesSegment open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, head, 0);
+            head.flip();
+            if (head.getInt() != MAGIC || head.getInt() != VERSION) throw new IOException("Not a sales segment: " + file);
+            int rows = head.getInt();
+            int dictSize = head.getInt();
+            long min = head.getLong();
+            long max = head.getLong();
+            int[] off = new int[COLUMNS];
+            int[] len = new int[COLUMNS];
+            for (int c = 0; c < COLUMNS; c++) {
+                off[c] = head.getInt();
+                len[c] = head.getInt();
+            }
+            ByteBuffer d = ByteBuffer.allocate(dictSize * 4).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, d, HEADER);
+            d.flip();
+            int[] dict = new int[dictSize];
+            d.asIntBuffer().get(dict);
+            return new SalesSegment(file, rows, min, max, dict, off, len);
+        }
+    }
+
+    private ByteBuffer read(int column) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(colLength[column]).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, b, colOffset[column]);
+            b.flip();
+            return b;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read column " + column + " of " + file, e);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+        while (b.hasRemaining()) {
+            int n = ch.read(b, pos);
+            if (n < 0) throw new IOException("Truncated segment");
+            pos += n;
+        }
+    }
+
+    // ---- Encodings ----
+
+    private static ByteBuffer encodeDeltas(long[] v, int n, boolean zigzag) {
+        ByteBuffer b = ByteBuffer.allocate(10 * n + 10);
+        long prev = 0;
+        for (int i = 0; i < n; i++) {
+            long d = v[i] - prev;
+            prev = v[i];
+            putVarLong(b, zigzag ? (d << 1) ^ (d >> 63) : d);
+        }
+        b.flip();
+        return b;
+    }
+
+    private long[] decodeDeltas(ByteBuffer b, boolean zigzag) {
+        long[] out = new long[rows];
+        long prev = 0;
+        for (int i = 0; i < rows; i++) {
+            long d = getVarLong(b);
+            if (zigzag) d = (d >>> 1) ^ -(d & 1);
+            prev += d;
+            out[i] = prev;
+        }
+        return out;
+    }
+
+    private static ByteBuffer encodeInts(int[] v, int n) {
+        ByteBuffer b = ByteBuffer.allocate(5 * n + 5);
+        for (int i = 0; i < n; i++) putVarLong(b, v[i] & 0xFFFFFFFFL);
+        b.flip();
+        return b;
+    }
+
+    private int[] decodeInts(ByteBuffer b) {
+        int[] out = new int[rows];
+        for (int i = 0; i < rows; i++) out[i] = (int) getVarLong(b);
+        return out;
+    }
+
+    private static void putVarLong(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    private static long getVarLong(ByteBuffer b) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte x = b.get();
+            v |= (long) (x & 0x7F) << shift;
+            if (x >= 0) return v;
+        }
+    }
+}
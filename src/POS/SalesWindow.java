@@ -0,0 +1,222 @@
+package POS;
+
+import java.util.Arrays;
+
+/**
+ * Sliding-window sales counters for the dashboard.
+ * Time is cut into buckets: 60 one-second buckets for the last minute and 15 one-minute
+ * buckets (each with a units counter per product) for the last 15 minutes. Every bucket
+ * ring keeps a running total, so a checkout adds into the current buckets and expiring a
+ * bucket subtracts it once: the cost per order is constant per line, and reading the
+ * window never walks past orders. Product ids map to dense slots through an
+ * open-addressing table. Thread-safe; fed by checkouts on the EDT or by replicated
+ * journal records on aggregator threads.
+ */
+public class SalesWindow {
+    static final int SECONDS = 60;
+    static final int MINUTES = 15;
+
+    // Last minute, by second
+    private final int[] secOrders = new int[SECONDS];
+    private final long[] secCents = new long[SECONDS];
+    private long minuteOrders;
+    private long minuteCents;
+    private long second = -1; // Newest second bucket, in seconds since the epoch
+
+    // Last 15 minutes, by minute
+    private final int[] minOrders = new int[MINUTES];
+    private final long[] minUnits = new long[MINUTES];
+    private final long[] minCents = new long[MINUTES];
+    private int[][] minProductUnits = new int[MINUTES][64];
+    private long windowOrders;
+    private long windowUnits;
+    private long windowCents;
+    private long[] windowProductUnits = new long[64];
+    private long minute = -1; // Newest minute bucket, in minutes since the epoch
+
+    // Product id -> slot + 1
+    private int[] idTable = new int[128];
+    private int[] slotIds = new int[64];
+    private int slots;
+
+    // Adds a confirmed order
+    public synchronized void record(long timeMillis, CartSnapshot order) {
+        advanceTo(timeMillis);
+        int m = minuteBucket(timeMillis);
+        if (m < 0) return;
+        long cents = 0;
+        long units = 0;
+        for (int i = 0; i < order.size(); i++) {
+            int q = order.getQuantity(i);
+            cents += CartSnapshot.cents(order.getProduct(i).getPrice()) * q;
+            units += q;
+            addProduct(m, order.getProduct(i).getId(), q);
+        }
+        addOrder(timeMillis, m, units, cents);
+    }
+
+    // Adds an order replicated from a lane's journal
+    public synchronized void record(SalesJournal.Record r) {
+        advanceTo(r.getTimeMillis());
+        int m = minuteBucket(r.getTimeMillis());
+        if (m < 0) return;
+        long cents = 0;
+        long units = 0;
+        for (int i = 0; i < r.getLineCount(); i++) {
+            cents += r.getCents(i);
+            units += r.getQuantity(i);
+            addProduct(m, r.getProductId(i), r.getQuantity(i));
+        }
+        addOrder(r.getTimeMillis(), m, units, cents);
+    }
+
+    // Bucket of a time in the 15 minute ring, -1 when it is older than the window
+    private int minuteBucket(long timeMillis) {
+        long min = Math.floorDiv(timeMillis, 60_000);
+        return min <= minute - MINUTES ? -1 : (int) (min % MINUTES);
+    }
+
+    private void addProduct(int m, int productId, int quantity) {
+        int s = slot(productId);
+        minProductUnits[m][s] += quantity;
+        windowProductUnits[s] += quantity;
+    }
+
+    // A late order still counts in its minute; in the last-minute figures only when it is in that minute
+    private void addOrder(long timeMillis, int m, long units, long cents) {
+        long sec = Math.floorDiv(timeMillis, 1000);
+        if (sec > second - SECONDS) {
+            int s = (int) (sec % SECONDS);
+            secOrders[s]++;
+            secCents[s] += cents;
+            minuteOrders++;
+            minuteCents += cents;
+        }
+        minOrders[m]++;
+        minUnits[m] += units;
+        minCents[m] += cents;
+        windowOrders++;
+        windowUnits += units;
+        windowCents += cents;
+    }
+
+    // Moves the window forward to end at the given time, expiring the buckets that fall out
+    private void advanceTo(long timeMillis) {
+        long sec = Math.floorDiv(timeMillis, 1000);
+        long min = Math.floorDiv(sec, 60);
+        // Seconds: at most a full turn needs clearing
+        for (long s = Math.max(second + 1, sec - SECONDS + 1); second >= 0 && s <= sec; s++) {
+            int i = (int) (s % SECONDS);
+            minuteOrders -= secOrders[i];
+            minuteCents -= secCents[i];
+            secOrders[i] = 0;
+            secCents[i] = 0;
+        }
+        if (sec > second) second = sec;
+        for (long t = Math.max(minute + 1, min - MINUTES + 1); minute >= 0 && t <= min; t++) {
+            int i = (int) (t % MINUTES);
+            windowOrders -= minOrders[i];
+            windowUnits -= minUnits[i];
+            windowCents -= minCents[i];
+            minOrders[i] = 0;
+            minUnits[i] = 0;
+            minCents[i] = 0;
+            int[] row = minProductUnits[i];
+            for (int s = 0; s < slots; s++) {
+                windowProductUnits[s] -= row[s];
+                row[s] = 0;
+            }
+        }
+        if (min > minute) minute = min;
+    }
+
+    private int slot(int productId) {
+        int mask = idTable.length - 1;
+        int h = (productId * 0x9E3779B1) & mask;
+        for (; ; h = (h + 1) & mask) {
+            int e = idTable[h];
+            if (e == 0) break;
+            if (slotIds[e - 1] == productId) return e - 1;
+        }
+        if (slots == slotIds.length) {
+            int n = slots * 2;
+            slotIds = Arrays.copyOf(slotIds, n);
+            windowProductUnits = Arrays.copyOf(windowProductUnits, n);
+            for (int i = 0; i < MINUTES; i++) minProductUnits[i] = Arrays.copyOf(minProductUnits[i], n);
+        }
+        int s = slots++;
+        slotIds[s] = productId;
+        // Keep the table at most half full
+        if (slots * 2 > idTable.length) {
+            idTable = new int[idTable.length * 2];
+            for (int i = 0; i < slots; i++) insertId(i);
+        } else {
+            idTable[h] = s + 1;
+        }
+        return s;
+    }
+
+    private void insertId(int s) {
+        int mask = idTable.length - 1;
+        int h = (slotIds[s] * 0x9E3779B1) & mask;
+        while (idTable[h] != 0) h = (h + 1) & mask;
+        idTable[h] = s + 1;
+    }
+
+    /**
+     * Fills view with the window ending at nowMillis. Costs the number of products seen
+     * (for the top list), independent of how many orders were recorded.
+     */
+    public synchronized void read(long nowMillis, View view) {
+        advanceTo(nowMillis);
+        view.lastMinuteOrders = minuteOrders;
+        view.lastMinuteCents = minuteCents;
+        view.orders = windowOrders;
+        view.units = windowUnits;
+        view.cents = windowCents;
+        // Per minute, oldest first; the current minute is still filling
+        for (int k = 0; k < MINUTES; k++) {
+            long t = minute - (MINUTES - 1) + k;
+            view.perMinuteCents[k] = t < 0 ? 0 : minCents[(int) (t % MINUTES)];
+        }
+        // Top products: insertion into a short sorted list
+        int n = 0;
+        int[] topIds = view.topIds;
+        long[] topUnits = view.topUnits;
+        for (int s = 0; s < slots; s++) {
+            long u = windowProductUnits[s];
+            if (u <= 0 || (n == topIds.length && u <= topUnits[n - 1])) continue;
+            int at = n < topIds.length ? n++ : n - 1;
+            while (at > 0 && topUnits[at - 1] < u) {
+                topUnits[at] = topUnits[at - 1];
+                topIds[at] = topIds[at - 1];
+                at--;
+            }
+            topUnits[at] = u;
+            topIds[at] = slotIds[s];
+        }
+        view.topCount = n;
+    }
+
+    // What read() fills in; reused between reads
+    public static final class View {
+        long lastMinuteOrders;
+        long lastMinuteCents;
+        long orders; // Last 15 minutes
+        long units;
+        long cents;
+        final long[] perMinuteCents = new long[MINUTES];
+        final int[] topIds;
+        final long[] topUnits;
+        int topCount;
+
+        public View(int top) {
+            topIds = new int[top];
+            topUnits = new long[top];
+        }
+
+        public double averageBasket() {
+            return orders == 0 ? 0 : units / (double) orders;
+        }
+    }
+}
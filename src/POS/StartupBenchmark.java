@@ -0,0 +1,68 @@
+package POS;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cold-start benchmark. Launches POS.Main in fresh JVMs and reports
+ * time-to-first-frame and time-to-first-interactive.
+ * Needs a display (use Xvfb on build machines).
+ *
+ * Usage: java -cp out/production/POS POS.StartupBenchmark [runs] [cds-archive.jsa]
+ */
+public class StartupBenchmark {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String archive = args.length > 1 ? args[1] : null;
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String cp = System.getProperty("java.class.path");
+
+        long[] frame = new long[runs];
+        long[] interactive = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(java);
+            if (archive != null) cmd.add("-XX:SharedArchiveFile=" + archive);
+            cmd.add("-Dpos.startup.exit=true");
+            cmd.add("-cp");
+            cmd.add(cp);
+            cmd.add("POS.Main");
+            long[] r = runOnce(cmd);
+            frame[i] = r[0];
+            interactive[i] = r[1];
+            System.out.println("run " + (i + 1) + ": firstFrame=" + r[0] + " ms, interactive=" + r[1] + " ms");
+        }
+        report("time-to-first-frame", frame);
+        report("time-to-first-interactive", interactive);
+    }
+
+    private static long[] runOnce(List<String> cmd) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        long[] r = {-1, -1};
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.startsWith(StartupMetrics.PREFIX)) continue;
+                for (String part : line.split(" ")) {
+                    if (part.startsWith("firstFrame=")) r[0] = Long.parseLong(part.substring(11));
+                    if (part.startsWith("interactive=")) r[1] = Long.parseLong(part.substring(12));
+                }
+            }
+        }
+        p.waitFor();
+        if (r[1] < 0) throw new IllegalStateException("POS.Main did not report startup (exit " + p.exitValue() + ")");
+        return r;
+    }
+
+    private static void report(String name, long[] v) {
+        long[] s = v.clone();
+        Arrays.sort(s);
+        System.out.printf("%s: min=%d ms median=%d ms max=%d ms%n", name, s[0], s[s.length / 2], s[s.length - 1]);
+    }
+}
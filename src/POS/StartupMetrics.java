@@ -0,0 +1,58 @@
+package POS;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Startup milestones measured from JVM start.
+ * - pos.startup.report=true prints the milestones once the app is interactive.
+ * - pos.startup.exit=true exits right after, for {@link StartupBenchmark} and the CDS dump run.
+ */
+public final class StartupMetrics {
+    // Printed line, parsed by StartupBenchmark
+    static final String PREFIX = "POS-STARTUP";
+
+    // Wall-clock stamps; converted to JVM-relative times only when read,
+    // so the management classes are not loaded on the startup path
+    private static volatile long mainAt = -1;
+    private static volatile long firstFrameAt = -1;
+    private static volatile long interactiveAt = -1;
+
+    private StartupMetrics() {
+    }
+
+    private static long sinceJvmStart(long at) {
+        return at < 0 ? -1 : at - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    // Entered main()
+    public static void markMain() {
+        if (mainAt < 0) mainAt = System.currentTimeMillis();
+    }
+
+    // Frame shown on screen
+    public static void markFirstFrame() {
+        if (firstFrameAt < 0) firstFrameAt = System.currentTimeMillis();
+    }
+
+    // Product grid usable
+    public static void markInteractive() {
+        if (interactiveAt >= 0) return;
+        interactiveAt = System.currentTimeMillis();
+        if (Boolean.getBoolean("pos.startup.report") || Boolean.getBoolean("pos.startup.exit")) {
+            System.out.println(PREFIX + " main=" + sinceJvmStart(mainAt) + " firstFrame=" + getFirstFrameMillis()
+                    + " interactive=" + getInteractiveMillis());
+        }
+        if (Boolean.getBoolean("pos.startup.exit")) {
+            System.exit(0);
+        }
+    }
+
+    // Milliseconds from JVM start, or -1 if not reached yet
+    public static long getFirstFrameMillis() {
+        return sinceJvmStart(firstFrameAt);
+    }
+
+    public static long getInteractiveMillis() {
+        return sinceJvmStart(interactiveAt);
+    }
+}
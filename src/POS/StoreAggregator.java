@@ -0,0 +1,243 @@
+package POS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Store-level collector of the lanes' sales journals.
+ * Keeps a byte-exact replica of each terminal's journal in its directory
+ * (&lt;terminal&gt;.journal), so the replica's end is the terminal's acknowledged offset.
+ * A batch is applied only from the replica's end onwards: anything before it is a
+ * duplicate (a resend after a lost acknowledgement) and is dropped, and a batch that starts
+ * past the end is refused; either way the reply tells the terminal where to continue.
+ *
+ * Protocol (per connection, DataOutput encoding):
+ * - terminal: MAGIC, terminal id (UTF); aggregator: replica end (long)
+ * - terminal: BATCH, first offset (long), raw length (int), deflated length (int), bytes;
+ *   aggregator: replica end after applying (long), or REFUSED and the reason (UTF) when the
+ *   batch does not inflate or its records fail their checksums. Resending cannot fix such a
+ *   batch, so the terminal stops shipping instead of looping on it.
+ *
+ * Usage: java -cp out/production/POS POS.StoreAggregator [port] [dir]
+ */
+public class StoreAggregator implements AutoCloseable {
+    static final int MAGIC = 0x504F534A; // "POSJ"
+    static final byte BATCH = 'B';
+    static final long REFUSED = -1;
+    private static final int MAX_BATCH = 64 * 1024 * 1024;
+
+    // Called for every newly replicated record, on the connection's thread
+    public interface RecordHandler {
+        void onRecord(String terminalId, SalesJournal.Record record);
+    }
+
+    private final Path dir;
+    private final RecordHandler handler;
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final Map<String, SalesJournal> replicas = new ConcurrentHashMap<>();
+    private final List<Socket> connections = new ArrayList<>();
+    private volatile boolean running = true;
+
+    // Statistics
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong duplicateBytes = new AtomicLong();
+
+    // A batch that can never be applied; the connection stays up to report it
+    private static final class RefusedBatch extends IOException {
+        RefusedBatch(String message) {
+            super(message);
+        }
+    }
+
+    public StoreAggregator(int port, Path dir, RecordHandler handler) throws IOException {
+        this.dir = dir;
+        this.handler = handler;
+        Files.createDirectories(dir);
+        this.server = new ServerSocket();
+        this.server.bind(new InetSocketAddress(port));
+        this.acceptor = new Thread(this::accept, "Aggregator-Accept");
+        this.acceptor.setDaemon(true);
+    }
+
+    public StoreAggregator start() {
+        acceptor.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket s = server.accept();
+                synchronized (connections) {
+                    connections.add(s);
+                }
+                Thread t = new Thread(() -> serve(s), "Aggregator-" + s.getRemoteSocketAddress());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (running) System.err.println("Aggregator accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket s) {
+        String terminal = "?";
+        try (s) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            if (in.readInt() != MAGIC) throw new IOException("Not a journal shipper");
+            terminal = in.readUTF();
+            if (!terminal.matches("[A-Za-z0-9_.-]{1,64}")) throw new IOException("Bad terminal id: " + terminal);
+            SalesJournal replica = replicaFor(terminal);
+            out.writeLong(replica.getEnd());
+            out.flush();
+
+            byte[] packed = new byte[64 * 1024];
+            byte[] raw = new byte[64 * 1024];
+            Inflater inflater = new Inflater();
+            try {
+                while (running) {
+                    if (in.readByte() != BATCH) throw new IOException("Unexpected frame");
+                    long first = in.readLong();
+                    int rawLen = in.readInt();
+                    int packedLen = in.readInt();
+                    if (rawLen < 0 || rawLen > MAX_BATCH || packedLen < 0 || packedLen > MAX_BATCH) {
+                        throw new IOException("Batch too large: " + rawLen + "/" + packedLen);
+                    }
+                    if (packed.length < packedLen) packed = new byte[packedLen];
+                    if (raw.length < rawLen) raw = new byte[rawLen];
+                    in.readFully(packed, 0, packedLen);
+                    try {
+                        inflater.reset();
+                        inflater.setInput(packed, 0, packedLen);
+                        if (inflater.inflate(raw, 0, rawLen) != rawLen || !inflater.finished()) {
+                            throw new RefusedBatch("Batch does not inflate to " + rawLen + " bytes");
+                        }
+                        out.writeLong(apply(terminal, replica, first, raw, rawLen));
+                    } catch (RefusedBatch | DataFormatException e) {
+                        System.err.println("Aggregator: refused batch at " + first + " from terminal " + terminal + ": " + e.getMessage());
+                        out.writeLong(REFUSED);
+                        out.writeUTF(String.valueOf(e.getMessage()));
+                    }
+                    out.flush();
+                }
+            } finally {
+                inflater.end();
+            }
+        } catch (EOFException e) {
+            // Terminal went away; it resumes from the replica's end on reconnect
+        } catch (IOException e) {
+            if (running) System.err.println("Aggregator: terminal " + terminal + " disconnected: " + e.getMessage());
+        } finally {
+            synchronized (connections) {
+                connections.remove(s);
+            }
+        }
+    }
+
+    // Applies the part of a batch past the replica's end; returns the new end
+    private long apply(String terminal, SalesJournal replica, long first, byte[] raw, int rawLen) throws IOException {
+        synchronized (replica) {
+            long end = replica.getEnd();
+            if (first > end) return end; // gap: the terminal rewinds to our end
+            long skip = end - first;
+            if (skip >= rawLen) {
+                duplicateBytes.addAndGet(rawLen);
+                return end;
+            }
+            duplicateBytes.addAndGet(skip);
+            // Offsets are positions in the same byte stream, so end is a record boundary in the batch too
+            ByteBuffer fresh = ByteBuffer.wrap(raw, (int) skip, rawLen - (int) skip);
+            List<SalesJournal.Record> decoded = new ArrayList<>();
+            try {
+                SalesJournal.decode(fresh.duplicate(), end, decoded::add);
+            } catch (IOException e) {
+                throw new RefusedBatch(e.getMessage());
+            }
+            replica.appendRaw(end, fresh);
+            records.addAndGet(decoded.size());
+            if (handler != null) {
+                for (SalesJournal.Record r : decoded) handler.onRecord(terminal, r);
+            }
+            return replica.getEnd();
+        }
+    }
+
+    private SalesJournal replicaFor(String terminal) throws IOException {
+        try {
+            return replicas.computeIfAbsent(terminal, t -> {
+                try {
+                    return SalesJournal.open(dir.resolve(t + ".journal"), false);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    // Replicated bytes for a terminal (its acknowledged offset), 0 if never seen
+    public long getOffset(String terminalId) {
+        SalesJournal r = replicas.get(terminalId);
+        return r == null ? 0 : r.getEnd();
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    public long getDuplicateBytes() {
+        return duplicateBytes.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        synchronized (connections) {
+            for (Socket s : connections) s.close();
+        }
+        for (SalesJournal r : replicas.values()) r.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        Path dir = Paths.get(args.length > 1 ? args[1] : "aggregator");
+        // -Dpos.dashboard=true shows the store-wide sales dashboard over all lanes
+        SalesWindow sales = Boolean.getBoolean("pos.dashboard") ? new SalesWindow() : null;
+        StoreAggregator a = new StoreAggregator(port, dir, sales == null ? null : (terminal, r) -> sales.record(r)).start();
+        if (sales != null) {
+            javax.swing.SwingUtilities.invokeLater(() -> SalesDashboard.open("Store sales", sales, id -> "Product #" + id));
+        }
+        System.out.println("Aggregator listening on " + a.getPort() + ", replicas in " + dir.toAbsolutePath());
+        while (true) {
+            Thread.sleep(10_000);
+            System.out.println("records " + a.getRecords() + ", duplicate bytes dropped " + a.getDuplicateBytes());
+        }
+    }
+}